@@ -0,0 +1,138 @@
+package org.shinthirty.klotski;
+
+import java.util.concurrent.TimeUnit;
+import org.shinthirty.klotski.models.KlotskiBoard;
+
+/**
+ * Base of the search engines. {@link #solve(KlotskiBoard, long, TimeUnit, Cancellation)} records
+ * the deadline and the cancellation request of the call and leaves the search to {@link #run},
+ * which polls {@link #shouldStop()} as it goes.
+ *
+ * @author shinthirty
+ */
+public abstract class AbstractSolver implements Solver {
+
+  /**
+   * Successor generator of the current geometry.
+   */
+  Expander expander;
+
+  /**
+   * Cancellation request of the search in progress, null while idle.
+   */
+  private volatile Cancellation cancellation;
+
+  /**
+   * Start time of the search in progress, from {@link System#nanoTime()}.
+   */
+  private long startTime;
+
+  /**
+   * Timeout of the search in progress in nanoseconds.
+   */
+  private long timeoutNanos;
+
+  /**
+   * Reason the search in progress stopped, null while running.
+   */
+  private Solution.Status stopped;
+
+  @Override
+  public final Solution solve(final KlotskiBoard puzzle, final long timeout, final TimeUnit unit,
+      final Cancellation cancellation) {
+    startTime = System.nanoTime();
+    timeoutNanos = unit.toNanos(timeout);
+    stopped = null;
+    if (cancellation.isCancelled()) {
+      return Solution.unsolved(Solution.Status.CANCELLED, 0, 0);
+    }
+
+    // Cancel only this call, even if the caller shares its request between several searches.
+    this.cancellation = new Cancellation(cancellation);
+    try {
+      return run(puzzle);
+    } finally {
+      this.cancellation = null;
+    }
+  }
+
+  /**
+   * Search for a solution.
+   *
+   * @param puzzle    Parsed klotski puzzle
+   * @return          {@link Solution}
+   */
+  protected abstract Solution run(KlotskiBoard puzzle);
+
+  @Override
+  public void cancel() {
+    Cancellation search = cancellation;
+    if (search != null) {
+      search.cancel();
+    }
+  }
+
+  /**
+   * Check whether the search in progress has been cancelled, interrupted or has run out of time,
+   * remembering why in {@link #getStopped()}.
+   *
+   * @return    {@link Boolean} true if the search must stop
+   */
+  boolean shouldStop() {
+    if (cancellation.isCancelled() || Thread.currentThread().isInterrupted()) {
+      stopped = Solution.Status.CANCELLED;
+    } else if (System.nanoTime() - startTime > timeoutNanos) {
+      stopped = Solution.Status.TIMED_OUT;
+    }
+
+    return stopped != null;
+  }
+
+  /**
+   * Get the reason the search in progress stopped.
+   *
+   * @return    {@link Solution.Status#CANCELLED} or {@link Solution.Status#TIMED_OUT}, null while
+   *            running
+   */
+  Solution.Status getStopped() {
+    return stopped;
+  }
+
+  /**
+   * Get the cancellation request of the search in progress.
+   *
+   * @return    {@link Cancellation}
+   */
+  Cancellation getCancellation() {
+    return cancellation;
+  }
+
+  /**
+   * Nanoseconds left before the deadline of the search in progress.
+   *
+   * @return    Remaining nanoseconds, at least 0
+   */
+  long remainingNanos() {
+    return Math.max(timeoutNanos - (System.nanoTime() - startTime), 0);
+  }
+
+  /**
+   * Milliseconds elapsed since the search in progress started.
+   *
+   * @return    Elapsed milliseconds
+   */
+  long elapsedMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+  }
+
+  /**
+   * Use a successor generator shared with other solvers of the same puzzle. It is kept as long as
+   * the puzzles solved have its geometry.
+   *
+   * @param expander    Successor generator
+   */
+  void setExpander(final Expander expander) {
+    this.expander = expander;
+  }
+
+}
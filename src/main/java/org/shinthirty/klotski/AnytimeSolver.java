@@ -0,0 +1,258 @@
+package org.shinthirty.klotski;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+import org.shinthirty.klotski.models.Heuristics;
+import org.shinthirty.klotski.models.KlotskiBoard;
+
+/**
+ * Anytime solver for callers with a latency budget. A greedy best-first search finds a first
+ * solution quickly, weighted A* searches with decreasing weights then look for shorter ones, and
+ * a final A* search with an admissible estimate proves the best solution optimal. Every search
+ * discards boards which cannot lead to a solution shorter than the best one known. The searches
+ * preceding the proof expand every board at most once, keeping the first path to it, and only the
+ * proof reopens boards reached again by a shorter path. When the deadline is reached the best
+ * solution found so far is returned, flagged as not optimal unless the proof completed.
+ *
+ * @author shinthirty
+ */
+public class AnytimeSolver extends AbstractSolver {
+
+  /**
+   * Default weights of the searches preceding the proof, greedy first.
+   */
+  public static final double[] DEFAULT_WEIGHTS = { Double.POSITIVE_INFINITY, 4, 2 };
+
+  /**
+   * Number of boards explored between two checks of the deadline.
+   */
+  private static final int DEADLINE_CHECK_INTERVAL = 1024;
+
+  /**
+   * Weights of the searches preceding the proof.
+   */
+  private final double[] weights;
+
+  /**
+   * Called with every solution shorter than the ones before.
+   */
+  private final Consumer<Solution> listener;
+
+  /**
+   * Best solved board found by the current search, null if none.
+   */
+  private KlotskiBoard best;
+
+  /**
+   * Number of steps of the best solved board, {@link Integer#MAX_VALUE} if none.
+   */
+  private int bestSteps;
+
+  /**
+   * Number of boards explored by the current search.
+   */
+  private long explored;
+
+  /**
+   * Constructor using the {@link #DEFAULT_WEIGHTS}.
+   *
+   * @param listener    Called with every improved solution, from the solving thread
+   */
+  public AnytimeSolver(final Consumer<Solution> listener) {
+    this(DEFAULT_WEIGHTS, listener);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param weights     Weights of the searches preceding the proof, in order; infinity stands
+   *                    for a greedy search
+   * @param listener    Called with every improved solution, from the solving thread
+   */
+  public AnytimeSolver(final double[] weights, final Consumer<Solution> listener) {
+    this.weights = weights.clone();
+    this.listener = listener;
+  }
+
+  /**
+   * Solve a puzzle, returning the best solution found by a wall-clock deadline.
+   *
+   * @param puzzle            Parsed klotski puzzle
+   * @param deadlineMillis    Deadline in milliseconds since the epoch
+   * @return                  {@link Solution}
+   */
+  public Solution solveBy(final KlotskiBoard puzzle, final long deadlineMillis) {
+    return solve(puzzle, Math.max(deadlineMillis - System.currentTimeMillis(), 0),
+        TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  protected Solution run(final KlotskiBoard puzzle) {
+    explored = 0;
+    best = null;
+    bestSteps = Integer.MAX_VALUE;
+    expander = Expander.of(puzzle, true, expander);
+
+    for (double weight : weights) {
+      // A search running out of boards without a solution has visited every reachable board.
+      boolean exhausted = search(puzzle, weight, Heuristics::score, false);
+      if (getStopped() != null || exhausted && best == null) {
+        return result(false);
+      }
+    }
+
+    // With an admissible and consistent estimate the first solution found is optimal.
+    search(puzzle, 1, Heuristics::lowerBound, true);
+    return result(getStopped() == null);
+  }
+
+  /**
+   * Best-first search ordered by {@code steps + weight * estimate}, improving the best solution.
+   *
+   * @param puzzle       Initial board
+   * @param weight       Weight of the estimate, infinity for a greedy search
+   * @param estimate     Estimate of the number of steps left
+   * @param proof        Whether the first solution found is optimal, the estimate being
+   *                     admissible and the weight 1
+   * @return             {@link Boolean} true if the search ran out of boards
+   */
+  private boolean search(final KlotskiBoard puzzle, final double weight,
+      final ToIntFunction<KlotskiBoard> estimate, final boolean proof) {
+    PriorityQueue<Node> open = new PriorityQueue<>();
+    Map<Long, Integer> costs = new HashMap<>();
+    long order = 0;
+    open.add(new Node(puzzle, 0, priority(0, estimate.applyAsInt(puzzle), weight), order++));
+    costs.put(puzzle.hash(), 0);
+
+    while (!open.isEmpty()) {
+      if (explored % DEADLINE_CHECK_INTERVAL == 0 && shouldStop()) {
+        return false;
+      }
+
+      Node node = open.poll();
+      if (costs.get(node.board.hash()) < node.steps) {
+        continue;
+      }
+
+      explored++;
+      if (node.board.isSolved()) {
+        if (node.steps < bestSteps) {
+          improve(node.board, node.steps, proof);
+        }
+        return false;
+      }
+
+      int steps = node.steps + 1;
+      for (KlotskiBoard next : expander.nextBoards(node.board, hash -> {
+        Integer known = costs.putIfAbsent(hash, steps);
+        if (known == null) {
+          return true;
+        } else if (!proof || known <= steps) {
+          return false;
+        }
+
+        costs.put(hash, steps);
+        return true;
+      })) {
+        if (steps + Heuristics.lowerBound(next) < bestSteps) {
+          open.add(new Node(next, steps, priority(steps, estimate.applyAsInt(next), weight),
+              order++));
+        }
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Priority of a board, lower first.
+   *
+   * @param steps       Number of steps made
+   * @param estimate    Estimate of the number of steps left
+   * @param weight      Weight of the estimate, infinity for a greedy search
+   * @return            Priority
+   */
+  private static double priority(final int steps, final int estimate, final double weight) {
+    return Double.isInfinite(weight) ? estimate : steps + weight * estimate;
+  }
+
+  /**
+   * Record a solution shorter than the best one and publish it.
+   *
+   * @param solved     Solved board
+   * @param steps      Number of steps
+   * @param optimal    Whether the solution is proven optimal
+   */
+  private void improve(final KlotskiBoard solved, final int steps, final boolean optimal) {
+    best = solved;
+    bestSteps = steps;
+    listener.accept(Solution.solved(best, optimal, explored, elapsedMillis()));
+  }
+
+  /**
+   * Build the result of the search.
+   *
+   * @param optimal    Whether the best solution is proven optimal
+   * @return           {@link Solution}
+   */
+  private Solution result(final boolean optimal) {
+    if (best != null) {
+      return Solution.solved(best, optimal, explored, elapsedMillis());
+    }
+
+    Solution.Status status = getStopped() != null ? getStopped() : Solution.Status.UNSOLVABLE;
+    return Solution.unsolved(status, explored, elapsedMillis());
+  }
+
+  /**
+   * Entry of the open list.
+   */
+  private static final class Node implements Comparable<Node> {
+
+    /**
+     * Board.
+     */
+    private final KlotskiBoard board;
+
+    /**
+     * Number of steps from the initial board.
+     */
+    private final int steps;
+
+    /**
+     * Priority, lower first.
+     */
+    private final double priority;
+
+    /**
+     * Insertion order, breaking ties first in first out.
+     */
+    private final long order;
+
+    /**
+     * Constructor.
+     *
+     * @param board       Board
+     * @param steps       Number of steps from the initial board
+     * @param priority    Priority, lower first
+     * @param order       Insertion order
+     */
+    Node(final KlotskiBoard board, final int steps, final double priority, final long order) {
+      this.board = board;
+      this.steps = steps;
+      this.priority = priority;
+      this.order = order;
+    }
+
+    @Override
+    public int compareTo(final Node other) {
+      int byPriority = Double.compare(priority, other.priority);
+      return byPriority != 0 ? byPriority : Long.compare(order, other.order);
+    }
+  }
+
+}
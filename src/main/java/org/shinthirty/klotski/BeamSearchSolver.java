@@ -0,0 +1,247 @@
+package org.shinthirty.klotski;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+import org.shinthirty.klotski.models.Heuristics;
+import org.shinthirty.klotski.models.KlotskiBoard;
+
+/**
+ * Beam search solver for puzzles too large to be solved optimally. At most {@code width} boards
+ * are kept per depth, the ones with the lowest score, so memory is bounded by the beam width
+ * rather than by the size of the state space. Boards seen in the last {@code window} depths are
+ * not generated again. The solution found is usually short but not proven optimal.
+ *
+ * @author shinthirty
+ */
+public class BeamSearchSolver extends AbstractSolver {
+
+  /**
+   * Default number of depths remembered for duplicate detection.
+   */
+  public static final int DEFAULT_WINDOW = 4;
+
+  /**
+   * Default maximum depth of the search.
+   */
+  public static final int DEFAULT_MAX_DEPTH = 1000;
+
+  /**
+   * Maximum number of boards kept per depth.
+   */
+  private final int width;
+
+  /**
+   * Number of depths remembered for duplicate detection.
+   */
+  private final int window;
+
+  /**
+   * Scoring function, lower is better.
+   */
+  private final ToIntFunction<KlotskiBoard> scoring;
+
+  /**
+   * Maximum depth of the search, lowered while running in parallel once a shorter solution is
+   * known.
+   */
+  private volatile int maxDepth;
+
+  /**
+   * Constructor using the default scoring function {@link Heuristics#score}.
+   *
+   * @param width    Maximum number of boards kept per depth
+   */
+  public BeamSearchSolver(final int width) {
+    this(width, DEFAULT_WINDOW, Heuristics::score, DEFAULT_MAX_DEPTH);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param width       Maximum number of boards kept per depth
+   * @param window      Number of depths remembered for duplicate detection
+   * @param scoring     Scoring function, lower is better
+   * @param maxDepth    Maximum depth of the search
+   */
+  public BeamSearchSolver(final int width, final int window,
+      final ToIntFunction<KlotskiBoard> scoring, final int maxDepth) {
+    if (width < 1 || window < 1) {
+      throw new IllegalArgumentException("Beam width and window must be positive");
+    }
+
+    this.width = width;
+    this.window = window;
+    this.scoring = scoring;
+    this.maxDepth = maxDepth;
+  }
+
+  @Override
+  protected Solution run(final KlotskiBoard puzzle) {
+    expander = Expander.of(puzzle, true, expander);
+
+    Deque<Set<Long>> seen = new ArrayDeque<>();
+    Set<Long> initial = new HashSet<>();
+    initial.add(puzzle.hash());
+    seen.add(initial);
+
+    if (puzzle.isSolved()) {
+      return Solution.solved(puzzle, false, 0, elapsedMillis());
+    }
+
+    List<KlotskiBoard> beam = new ArrayList<>();
+    beam.add(puzzle);
+    long explored = 0;
+    for (int depth = 0; depth < maxDepth && !beam.isEmpty(); depth++) {
+      if (shouldStop()) {
+        return Solution.unsolved(getStopped(), explored, elapsedMillis());
+      }
+
+      List<KlotskiBoard> children = new ArrayList<>();
+      Set<Long> next = new HashSet<>();
+      for (KlotskiBoard board : beam) {
+        explored++;
+        for (KlotskiBoard child : expander.nextBoards(board,
+            hash -> !contains(seen, hash) && next.add(hash))) {
+          // Test the goal as boards are generated, so that a solved board scored out of the beam
+          // is not lost.
+          if (child.isSolved()) {
+            return Solution.solved(child, false, explored, elapsedMillis());
+          }
+
+          children.add(child);
+        }
+      }
+
+      seen.addLast(next);
+      if (seen.size() > window) {
+        seen.removeFirst();
+      }
+
+      beam = select(children);
+    }
+
+    return Solution.unsolved(Solution.Status.NOT_FOUND, explored, elapsedMillis());
+  }
+
+  /**
+   * Lower the maximum depth of the search in progress.
+   *
+   * @param depth    New maximum depth
+   */
+  void limitDepth(final int depth) {
+    if (depth < maxDepth) {
+      maxDepth = depth;
+    }
+  }
+
+  /**
+   * Determine whether a board has been seen within the window.
+   *
+   * @param seen    Hashes of the boards seen at each depth of the window
+   * @param hash    Hash of the board
+   * @return        {@link Boolean} true if the board has been seen
+   */
+  private static boolean contains(final Deque<Set<Long>> seen, final long hash) {
+    for (Set<Long> depth : seen) {
+      if (depth.contains(hash)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Keep the best scored boards, ties going to the earliest generated.
+   *
+   * @param children    Boards generated from the current beam
+   * @return            At most {@code width} boards
+   */
+  private List<KlotskiBoard> select(final List<KlotskiBoard> children) {
+    if (children.size() <= width) {
+      return children;
+    }
+
+    long[] keys = new long[children.size()];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = (long) scoring.applyAsInt(children.get(i)) << 32 | i;
+    }
+    Arrays.sort(keys);
+
+    List<KlotskiBoard> beam = new ArrayList<>(width);
+    for (int i = 0; i < width; i++) {
+      beam.add(children.get((int) keys[i]));
+    }
+
+    return beam;
+  }
+
+  /**
+   * Run one beam search per width in parallel and return the shortest solution any of them
+   * finds. Once a solution is known, searches with other widths stop at its depth.
+   *
+   * @param puzzle     Parsed klotski puzzle
+   * @param widths     Beam widths
+   * @param scoring    Scoring function, lower is better
+   * @param timeout    Maximum time to search
+   * @param unit       Unit of the timeout
+   * @return           Shortest {@link Solution}, or the first result to complete if none solved
+   *                   the puzzle
+   */
+  public static Solution solveParallel(final KlotskiBoard puzzle, final int[] widths,
+      final ToIntFunction<KlotskiBoard> scoring, final long timeout, final TimeUnit unit) {
+    // Fill the lazily computed caches of the shared puzzle before other threads read it.
+    puzzle.hash();
+
+    ExecutorService executor = Executors.newFixedThreadPool(widths.length);
+    CompletionService<Solution> completion = new ExecutorCompletionService<>(executor);
+    List<BeamSearchSolver> solvers = new ArrayList<>();
+    Cancellation cancellation = new Cancellation();
+    try {
+      for (int width : widths) {
+        BeamSearchSolver solver = new BeamSearchSolver(width, DEFAULT_WINDOW, scoring,
+            DEFAULT_MAX_DEPTH);
+        solvers.add(solver);
+        completion.submit(() -> solver.solve(puzzle, timeout, unit, cancellation));
+      }
+
+      Solution best = null;
+      for (int i = 0; i < widths.length; i++) {
+        Solution solution = completion.take().get();
+        if (best == null || solution.isSolved()
+            && (!best.isSolved() || solution.getSteps() < best.getSteps())) {
+          best = solution;
+        }
+
+        if (best.isSolved()) {
+          for (BeamSearchSolver solver : solvers) {
+            solver.limitDepth(best.getSteps() - 1);
+          }
+        }
+      }
+
+      return best;
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      cancellation.cancel();
+      return Solution.unsolved(Solution.Status.CANCELLED, 0, 0);
+    } catch (ExecutionException ex) {
+      throw new IllegalStateException(ex);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+}
@@ -0,0 +1,55 @@
+package org.shinthirty.klotski;
+
+/**
+ * Cancellation request of one or more searches. A search given a cancelled request returns
+ * {@link Solution.Status#CANCELLED} without starting, so a request made before the search starts
+ * is not lost, and a request only concerns the searches it is given to.
+ *
+ * @author shinthirty
+ */
+public final class Cancellation {
+
+  /**
+   * Request cancelling this one too, null if none.
+   */
+  private final Cancellation parent;
+
+  /**
+   * Whether {@link #cancel()} has been called.
+   */
+  private volatile boolean cancelled;
+
+  /**
+   * Constructor.
+   */
+  public Cancellation() {
+    this(null);
+  }
+
+  /**
+   * Constructor of a request also cancelled with another one.
+   *
+   * @param parent    Request cancelling this one too, may be null
+   */
+  public Cancellation(final Cancellation parent) {
+    this.parent = parent;
+  }
+
+  /**
+   * Ask the searches given this request, or a request made from it, to stop. May be called from
+   * any thread.
+   */
+  public void cancel() {
+    cancelled = true;
+  }
+
+  /**
+   * Check whether this request or the one it was made from has been cancelled.
+   *
+   * @return    {@link Boolean} true if cancelled
+   */
+  public boolean isCancelled() {
+    return cancelled || parent != null && parent.isCancelled();
+  }
+
+}
@@ -0,0 +1,151 @@
+package org.shinthirty.klotski;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.LongPredicate;
+import org.shinthirty.klotski.models.Direction;
+import org.shinthirty.klotski.models.KlotskiBoard;
+import org.shinthirty.klotski.models.MoveGenerator;
+
+/**
+ * Generate the boards reachable in one step, a step being one block sliding any distance, around
+ * corners included. Shared by the search engines so that they all count steps the same way.
+ *
+ * @author shinthirty
+ */
+class Expander {
+
+  /**
+   * Packed move generator, or null to check moves one block and direction at a time.
+   */
+  private final MoveGenerator moveGenerator;
+
+  /**
+   * Constructor.
+   *
+   * @param moveGenerator    Packed move generator, or null to check moves one block and
+   *                         direction at a time
+   */
+  Expander(final MoveGenerator moveGenerator) {
+    this.moveGenerator = moveGenerator;
+  }
+
+  /**
+   * Get an expander for a puzzle, reusing the previous one if it was built for the same geometry.
+   *
+   * @param puzzle      Parsed klotski puzzle
+   * @param packed      Whether to use the packed move generator when the puzzle supports it
+   * @param previous    Previous expander, may be null
+   * @return            {@link Expander}
+   */
+  static Expander of(final KlotskiBoard puzzle, final boolean packed, final Expander previous) {
+    if (!packed || !MoveGenerator.supports(puzzle)) {
+      return previous != null && previous.moveGenerator == null ? previous : new Expander(null);
+    }
+
+    if (previous != null && previous.moveGenerator != null
+        && previous.moveGenerator.matches(puzzle)) {
+      return previous;
+    }
+
+    return new Expander(new MoveGenerator(puzzle));
+  }
+
+  /**
+   * Get the packed move generator.
+   *
+   * @return    {@link MoveGenerator}, or null if moves are checked one at a time
+   */
+  MoveGenerator getMoveGenerator() {
+    return moveGenerator;
+  }
+
+  /**
+   * Generate the next possible puzzle boards from the current puzzle board using legal moves.
+   *
+   * @param current    Current puzzle board
+   * @param admit      Called with the hash of every board found, returns true if the board has
+   *                   not been seen before and should be kept
+   * @return           Next possible puzzle boards, linked to the current board
+   */
+  List<KlotskiBoard> nextBoards(final KlotskiBoard current, final LongPredicate admit) {
+    List<KlotskiBoard> nextBoards = new ArrayList<>();
+
+    if (moveGenerator != null) {
+      int[] buffer = new int[3 * current.getGeometry().cells()];
+      long moves = moveGenerator.legalMoves(current);
+      while (moves != 0) {
+        int block = MoveGenerator.getBlock(Long.numberOfTrailingZeros(moves));
+        findNextBoards(current, block, buffer, admit, nextBoards);
+        moves &= ~(15L << (block << 2));
+      }
+    } else {
+      for (String name : current.getBlocks().keySet()) {
+        findNextBoards(current, name, admit, nextBoards);
+      }
+    }
+
+    nextBoards.forEach(nextBoard -> nextBoard.setPrev(current));
+    return nextBoards;
+  }
+
+  /**
+   * Find out all next klotski boards reachable by moving the named block from the current klotski
+   * board. Boards already seen are not kept but the block still slides through them.
+   *
+   * @param current       Current klotski board
+   * @param name          Name of the block to be moved
+   * @param admit         Filter of boards not seen before
+   * @param nextBoards    Reachable next boards
+   */
+  private void findNextBoards(final KlotskiBoard current, final String name,
+      final LongPredicate admit, final List<KlotskiBoard> nextBoards) {
+    Set<Long> slid = new HashSet<>();
+    slid.add(current.hash());
+    Deque<KlotskiBoard> slides = new ArrayDeque<>();
+    slides.add(current);
+
+    while (!slides.isEmpty()) {
+      KlotskiBoard board = slides.poll();
+      for (Direction direction : Direction.values()) {
+        if (board.canMove(name, direction)) {
+          KlotskiBoard next = board.move(name, direction);
+          if (slid.add(next.hash())) {
+            slides.add(next);
+            if (admit.test(next.hash())) {
+              nextBoards.add(next);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Find out all next klotski boards reachable by moving the indexed block from the current
+   * klotski board, using the packed move generator.
+   *
+   * @param current       Current klotski board
+   * @param block         Index of the block to be moved
+   * @param buffer        Slide buffer
+   * @param admit         Filter of boards not seen before
+   * @param nextBoards    Reachable next boards
+   */
+  private void findNextBoards(final KlotskiBoard current, final int block, final int[] buffer,
+      final LongPredicate admit, final List<KlotskiBoard> nextBoards) {
+    String name = moveGenerator.getName(block);
+    int count = moveGenerator.slides(current, block, buffer);
+    for (int i = 1; i <= count; i++) {
+      KlotskiBoard next = current.copy();
+      next.shift(name, buffer[3 * i + 1], buffer[3 * i + 2]);
+      if (admit.test(next.hash())) {
+        nextBoards.add(next);
+      }
+    }
+  }
+
+}
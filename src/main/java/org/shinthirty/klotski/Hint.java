@@ -0,0 +1,63 @@
+package org.shinthirty.klotski;
+
+import lombok.Data;
+import org.shinthirty.klotski.models.KlotskiBoard;
+import org.shinthirty.klotski.models.Move;
+
+/**
+ * Best next move from a position, as answered by {@link HintService}.
+ *
+ * @author shinthirty
+ */
+@Data
+public class Hint {
+
+  /**
+   * Distance of a position from which the puzzle cannot be solved.
+   */
+  public static final int UNSOLVABLE = -1;
+
+  /**
+   * Distance of a position whose search gave up before reaching a solved board.
+   */
+  public static final int UNKNOWN = -2;
+
+  /**
+   * Move starting a solution of the distance, null if the position is solved, unsolvable or its
+   * search gave up before reaching a solved board.
+   */
+  private final Move move;
+
+  /**
+   * Board after the move, null if there is no move.
+   */
+  private final KlotskiBoard next;
+
+  /**
+   * Fewest steps from the position to a solved board, {@link #UNSOLVABLE} or {@link #UNKNOWN}.
+   */
+  private final int distance;
+
+  /**
+   * Whether the distance is proven the fewest steps. It is not when the search gave up at its
+   * limit, the distance then being that of the solution the move starts, or {@link #UNKNOWN} if
+   * none was found.
+   */
+  private final boolean optimal;
+
+  /**
+   * Whether the hint was answered from the distances already kept by the session, without
+   * searching.
+   */
+  private final boolean cached;
+
+  /**
+   * Check if the puzzle can be solved from the position, as far as the search went.
+   *
+   * @return    {@link Boolean} false only if proven unsolvable
+   */
+  public boolean isSolvable() {
+    return distance != UNSOLVABLE;
+  }
+
+}
@@ -0,0 +1,370 @@
+package org.shinthirty.klotski;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.shinthirty.klotski.models.Heuristics;
+import org.shinthirty.klotski.models.KlotskiBoard;
+import org.shinthirty.klotski.models.Move;
+
+/**
+ * Answer "what is the best next move?" for positions played one after the other. Each session
+ * keeps the exact distance to the goal of boards of its layout, so a position whose distance and
+ * next board are kept is answered by lookup. Otherwise the session searches breadth-first outward
+ * from the position, where a board of known distance ends a path as a solved board would, and
+ * stops once no board left can lead to a shorter solution. The distances along the solution found
+ * are kept, so following the hints is answered by lookup and a position off the solution only
+ * searches until it meets boards already known. A session holds at most a fixed number of
+ * distances, dropping the least recently used, and sessions are dropped when idle for too long or
+ * when there are too many. A search visits at most a fixed number of boards, after which it gives
+ * up with the best move found so far, if any, flagged as not optimal and not kept.
+ *
+ * <p>Sessions are searched concurrently, each one answering a single position at a time. A
+ * session answers the positions of a single layout, while sessions may answer different puzzles.
+ *
+ * @author shinthirty
+ */
+public class HintService {
+
+  /**
+   * Default number of distances kept per session, each taking less than 100 bytes. It holds the
+   * solutions of many hinted positions, which are at most a few hundred steps long.
+   */
+  public static final int DEFAULT_SESSION_ENTRIES = 1 << 12;
+
+  /**
+   * Default number of boards a search visits before giving up, enough for a search from scratch
+   * on the puzzles of {@code testData}.
+   */
+  public static final int DEFAULT_SEARCH_LIMIT = 1 << 16;
+
+  /**
+   * Distance of a board not kept by the session.
+   */
+  private static final int UNKNOWN = Integer.MIN_VALUE;
+
+  /**
+   * Maximum number of sessions.
+   */
+  private final int maxSessions;
+
+  /**
+   * Maximum number of distances kept per session.
+   */
+  private final int sessionEntries;
+
+  /**
+   * Maximum number of boards a search visits.
+   */
+  private final int searchLimit;
+
+  /**
+   * Time in milliseconds after which an idle session is dropped.
+   */
+  private final long ttlMillis;
+
+  /**
+   * Sessions by identifier, least recently used first. Guards itself and the last use of every
+   * session.
+   */
+  private final Map<String, Session> sessions = new LinkedHashMap<>(16, 0.75f, true);
+
+  /**
+   * Constructor using {@link #DEFAULT_SESSION_ENTRIES} distances per session and searches of at
+   * most {@link #DEFAULT_SEARCH_LIMIT} boards.
+   *
+   * @param maxSessions    Maximum number of sessions, the least recently used being dropped
+   * @param ttlMillis      Time in milliseconds after which an idle session is dropped
+   */
+  public HintService(final int maxSessions, final long ttlMillis) {
+    this(maxSessions, DEFAULT_SESSION_ENTRIES, ttlMillis);
+  }
+
+  /**
+   * Constructor using searches of at most {@link #DEFAULT_SEARCH_LIMIT} boards.
+   *
+   * @param maxSessions       Maximum number of sessions, the least recently used being dropped
+   * @param sessionEntries    Maximum number of distances kept per session
+   * @param ttlMillis         Time in milliseconds after which an idle session is dropped
+   */
+  public HintService(final int maxSessions, final int sessionEntries, final long ttlMillis) {
+    this(maxSessions, sessionEntries, DEFAULT_SEARCH_LIMIT, ttlMillis);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param maxSessions       Maximum number of sessions, the least recently used being dropped
+   * @param sessionEntries    Maximum number of distances kept per session
+   * @param searchLimit       Maximum number of boards a search visits before giving up
+   * @param ttlMillis         Time in milliseconds after which an idle session is dropped
+   */
+  public HintService(final int maxSessions, final int sessionEntries, final int searchLimit,
+      final long ttlMillis) {
+    if (maxSessions < 1 || sessionEntries < 1 || searchLimit < 1) {
+      throw new IllegalArgumentException(
+          "At least one session, one entry and one searched board are required");
+    }
+
+    this.maxSessions = maxSessions;
+    this.sessionEntries = sessionEntries;
+    this.searchLimit = searchLimit;
+    this.ttlMillis = ttlMillis;
+  }
+
+  /**
+   * Get the best next move from a position.
+   *
+   * @param sessionId    Session identifier
+   * @param position     Current position
+   * @return             {@link Hint}
+   * @throws IllegalStateException    If the session answers positions of another layout
+   */
+  public Hint hint(final String sessionId, final KlotskiBoard position) {
+    String layout = position.layout();
+
+    Session session;
+    synchronized (sessions) {
+      long now = System.currentTimeMillis();
+      evictExpired(now);
+
+      session = sessions.get(sessionId);
+      if (session == null) {
+        session = new Session(position, layout);
+        sessions.put(sessionId, session);
+        if (sessions.size() > maxSessions) {
+          Iterator<Session> eldest = sessions.values().iterator();
+          eldest.next();
+          eldest.remove();
+        }
+      }
+
+      session.lastUsed = now;
+    }
+
+    if (!session.layout.equals(layout)) {
+      throw new IllegalStateException("Session " + sessionId + " answers positions of "
+          + session.layout + ", not " + layout);
+    }
+
+    synchronized (session) {
+      return session.hint(position);
+    }
+  }
+
+  /**
+   * Drop a session and the distances it keeps.
+   *
+   * @param sessionId    Session identifier
+   */
+  public void close(final String sessionId) {
+    synchronized (sessions) {
+      sessions.remove(sessionId);
+    }
+  }
+
+  /**
+   * Get the number of live sessions.
+   *
+   * @return    Number of sessions
+   */
+  public int getSessionCount() {
+    synchronized (sessions) {
+      return sessions.size();
+    }
+  }
+
+  /**
+   * Drop the sessions idle for longer than the time to live.
+   *
+   * @param now    Current time in milliseconds
+   */
+  private void evictExpired(final long now) {
+    Iterator<Session> iterator = sessions.values().iterator();
+    while (iterator.hasNext()) {
+      if (now - iterator.next().lastUsed <= ttlMillis) {
+        break;
+      }
+
+      iterator.remove();
+    }
+  }
+
+  /**
+   * Distances to the goal of the boards of one layout.
+   */
+  private final class Session {
+
+    /**
+     * Layout of the boards, as given by {@link KlotskiBoard#layout()}.
+     */
+    private final String layout;
+
+    /**
+     * Successor generator of the layout.
+     */
+    private final Expander expander;
+
+    /**
+     * Exact distance to the goal by board hash, least recently used first.
+     */
+    private final Map<Long, Integer> distances;
+
+    /**
+     * Time in milliseconds of the last hint, guarded by the sessions.
+     */
+    private long lastUsed;
+
+    /**
+     * Constructor.
+     *
+     * @param position    First position
+     * @param layout      Layout of the position
+     */
+    Session(final KlotskiBoard position, final String layout) {
+      this.layout = layout;
+      expander = Expander.of(position, true, null);
+      distances = new LinkedHashMap<Long, Integer>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Long, Integer> eldest) {
+          return size() > sessionEntries;
+        }
+      };
+    }
+
+    /**
+     * Get the best next move from a position, searching only if its distance or its next board
+     * on an optimal solution is not kept.
+     *
+     * @param position    Current position
+     * @return            {@link Hint}
+     */
+    Hint hint(final KlotskiBoard position) {
+      Integer distance = distances.get(position.hash());
+      if (distance != null) {
+        Hint hint = lookup(position, distance);
+        if (hint != null) {
+          return hint;
+        }
+      }
+
+      return search(position);
+    }
+
+    /**
+     * Build a hint from the kept distances.
+     *
+     * @param position    Current position
+     * @param distance    Distance of the position
+     * @return            {@link Hint}, or null if no next board on an optimal solution is kept
+     */
+    private Hint lookup(final KlotskiBoard position, final int distance) {
+      if (distance == 0 || distance == Hint.UNSOLVABLE) {
+        return new Hint(null, null, distance, true, true);
+      }
+
+      for (KlotskiBoard next : expander.nextBoards(position, hash -> true)) {
+        if (distance(next) == distance - 1) {
+          return new Hint(Move.between(position, next), next, distance, true, true);
+        }
+      }
+
+      return null;
+    }
+
+    /**
+     * Search breadth-first outward from a position for its shortest solution, ending paths at
+     * solved boards and at boards of known distance, and keep the distances along the solution.
+     * A board is not expanded once its depth plus its lower bound reaches the best solution, and
+     * the search stops when the depth does, or gives up once it has visited the search limit.
+     *
+     * @param position    Current position
+     * @return            {@link Hint}
+     */
+    private Hint search(final KlotskiBoard position) {
+      // Detach the position from the boards played before it, which are not part of the solution.
+      KlotskiBoard start = position.copy();
+      start.setPrev(null);
+
+      Set<Long> visited = new HashSet<>();
+      visited.add(start.hash());
+      List<KlotskiBoard> level = Collections.singletonList(start);
+      KlotskiBoard end = null;
+      int best = Integer.MAX_VALUE;
+      boolean limited = false;
+      search:
+      for (int depth = 0; !level.isEmpty() && depth < best; depth++) {
+        List<KlotskiBoard> nextLevel = new ArrayList<>();
+        for (KlotskiBoard board : level) {
+          // The distance kept for the position itself came without its next board.
+          int distance = board.isSolved() ? 0 : board == start ? UNKNOWN : distance(board);
+          if (distance == Hint.UNSOLVABLE) {
+            // Moves can be undone, so the position reaches exactly the boards this one does.
+            break search;
+          } else if (distance != UNKNOWN) {
+            if (depth + distance < best) {
+              best = depth + distance;
+              end = board;
+            }
+          } else if (depth + Heuristics.lowerBound(board) < best) {
+            nextLevel.addAll(expander.nextBoards(board, visited::add));
+            if (visited.size() > searchLimit) {
+              limited = true;
+              break search;
+            }
+          }
+        }
+
+        level = nextLevel;
+      }
+
+      if (end == null) {
+        if (limited) {
+          return new Hint(null, null, Hint.UNKNOWN, false, false);
+        }
+
+        distances.put(position.hash(), Hint.UNSOLVABLE);
+        return new Hint(null, null, Hint.UNSOLVABLE, true, false);
+      }
+
+      List<KlotskiBoard> path = new ArrayList<>();
+      for (KlotskiBoard board = end; board != null; board = board.getPrev()) {
+        path.add(0, board);
+      }
+
+      // Every board along a shortest solution is as far from the goal as what is left of it. The
+      // position goes in last, so it and its next board are the most recently used. A solution
+      // found by a search which gave up may not be the shortest, so it is not kept.
+      if (!limited) {
+        for (int i = path.size() - 1; i >= 0; i--) {
+          distances.put(path.get(i).hash(), best - i);
+        }
+      }
+
+      if (best == 0) {
+        return new Hint(null, null, 0, true, false);
+      }
+
+      KlotskiBoard next = path.get(1);
+      next.setPrev(position);
+      return new Hint(Move.between(position, next), next, best, !limited, false);
+    }
+
+    /**
+     * Get the kept distance of a board.
+     *
+     * @param board    Klotski board
+     * @return         Distance, or {@link #UNKNOWN} if not kept
+     */
+    private int distance(final KlotskiBoard board) {
+      Integer distance = distances.get(board.hash());
+      return distance == null ? UNKNOWN : distance;
+    }
+  }
+
+}
@@ -0,0 +1,328 @@
+package org.shinthirty.klotski;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import lombok.Data;
+import org.shinthirty.klotski.models.Heuristics;
+import org.shinthirty.klotski.models.KlotskiBoard;
+import org.shinthirty.klotski.models.MoveGenerator;
+
+/**
+ * Iterative-deepening A* solver. The search is depth-first and makes and undoes moves in place on
+ * a single board, so apart from the transposition table its memory grows only with the depth of
+ * the solution. The transposition table has a fixed number of entries and keeps the lowest number
+ * of steps each board was reached with, so boards already explored are not expanded again, in the
+ * same iteration or with a cheaper path from an earlier one.
+ *
+ * <p>Requires the packed move generator, that is at most {@link MoveGenerator#MAX_BLOCKS} blocks.
+ *
+ * @author shinthirty
+ */
+public class IdaStarSolver extends AbstractSolver {
+
+  /**
+   * Default number of transposition table entries, about 13 MB.
+   */
+  public static final int DEFAULT_TABLE_ENTRIES = 1 << 20;
+
+  /**
+   * Number of expansions between two checks of the deadline.
+   */
+  private static final int DEADLINE_CHECK_INTERVAL = 4096;
+
+  /**
+   * Result of a search when the solved board is reached.
+   */
+  private static final int FOUND = -1;
+
+  /**
+   * Result of a search when it has been cancelled or timed out.
+   */
+  private static final int STOPPED = -2;
+
+  /**
+   * Result of a search with no board beyond the bound.
+   */
+  private static final int INFINITY = Integer.MAX_VALUE;
+
+  /**
+   * Statistics of one iteration.
+   */
+  @Data
+  public static class Iteration {
+
+    /**
+     * Bound on the estimated number of steps.
+     */
+    private final int bound;
+
+    /**
+     * Number of boards expanded.
+     */
+    private long expanded;
+
+    /**
+     * Boards not expanded because they were already expanded with as few steps in this iteration.
+     */
+    private long prunedInIteration;
+
+    /**
+     * Boards not expanded because an earlier iteration reached them with fewer steps.
+     */
+    private long prunedFromEarlierIterations;
+
+    /**
+     * Transposition table entries evicted.
+     */
+    private long evictions;
+  }
+
+  /**
+   * Transposition table.
+   */
+  private final TranspositionTable table;
+
+  /**
+   * Statistics of the iterations of the last search.
+   */
+  private final List<Iteration> iterations = new ArrayList<>();
+
+  /**
+   * Board the moves are made on.
+   */
+  private KlotskiBoard board;
+
+  /**
+   * Slide buffers, one per depth.
+   */
+  private final List<int[]> buffers = new ArrayList<>();
+
+  /**
+   * Moved block at every depth of the current path.
+   */
+  private int[] pathBlocks = new int[64];
+
+  /**
+   * Horizontal offset at every depth of the current path.
+   */
+  private int[] pathX = new int[64];
+
+  /**
+   * Vertical offset at every depth of the current path.
+   */
+  private int[] pathY = new int[64];
+
+  /**
+   * Number of steps of the solution found.
+   */
+  private int solutionLength;
+
+  /**
+   * Statistics of the current iteration.
+   */
+  private Iteration current;
+
+  /**
+   * Number of boards expanded by the current search.
+   */
+  private long explored;
+
+  /**
+   * Constructor using a table of {@link #DEFAULT_TABLE_ENTRIES} entries.
+   */
+  public IdaStarSolver() {
+    this(DEFAULT_TABLE_ENTRIES);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param tableEntries    Maximum number of transposition table entries, each taking about
+   *                        {@link TranspositionTable#BYTES_PER_ENTRY} bytes
+   */
+  public IdaStarSolver(final int tableEntries) {
+    table = new TranspositionTable(tableEntries);
+  }
+
+  @Override
+  protected Solution run(final KlotskiBoard puzzle) {
+    if (!MoveGenerator.supports(puzzle)) {
+      throw new IllegalArgumentException("At most " + MoveGenerator.MAX_BLOCKS
+          + " blocks are supported");
+    }
+
+    explored = 0;
+    expander = Expander.of(puzzle, true, expander);
+    if (board == null || board.getGeometry().cells() != puzzle.getGeometry().cells()) {
+      buffers.clear();
+    }
+    board = puzzle.copy();
+    table.clear();
+    iterations.clear();
+
+    int bound = Heuristics.lowerBound(board);
+    while (true) {
+      current = new Iteration(bound);
+      iterations.add(current);
+      long evictions = table.getEvictions();
+      int result = search(0, bound, -1);
+      current.setEvictions(table.getEvictions() - evictions);
+
+      if (result == FOUND) {
+        return Solution.solved(replay(puzzle, solutionLength), true, explored, elapsedMillis());
+      } else if (result == STOPPED) {
+        return Solution.unsolved(getStopped(), explored, elapsedMillis());
+      } else if (result == INFINITY) {
+        return Solution.unsolved(Solution.Status.UNSOLVABLE, explored, elapsedMillis());
+      }
+
+      bound = result;
+    }
+  }
+
+  /**
+   * Get the statistics of the iterations of the last search.
+   *
+   * @return    One entry per iteration
+   */
+  public List<Iteration> getIterations() {
+    return Collections.unmodifiableList(iterations);
+  }
+
+  /**
+   * Get the number of expansions the transposition table saved by remembering boards from earlier
+   * iterations.
+   *
+   * @return    Number of boards not expanded again
+   */
+  public long getReexpansionsAvoided() {
+    return iterations.stream().mapToLong(Iteration::getPrunedFromEarlierIterations).sum();
+  }
+
+  /**
+   * Depth-first search below the current board.
+   *
+   * @param steps        Number of steps made so far
+   * @param bound        Bound on the estimated number of steps
+   * @param lastBlock    Block moved by the last step, not moved again since two consecutive
+   *                     slides of a block are one step
+   * @return             {@link #FOUND}, {@link #STOPPED}, or the lowest estimate exceeding the
+   *                     bound
+   */
+  private int search(final int steps, final int bound, final int lastBlock) {
+    int estimate = Heuristics.lowerBound(board);
+    if (estimate == 0) {
+      solutionLength = steps;
+      return FOUND;
+    }
+
+    if (steps + estimate > bound) {
+      return steps + estimate;
+    }
+
+    long hash = board.hash();
+    int slot = table.find(hash);
+    if (slot >= 0) {
+      int known = table.steps(slot);
+      boolean sameIteration = table.iteration(slot) == iterations.size();
+      if (known < steps || known == steps && sameIteration) {
+        if (sameIteration) {
+          current.prunedInIteration++;
+        } else {
+          current.prunedFromEarlierIterations++;
+        }
+        return INFINITY;
+      }
+    }
+    table.store(slot, hash, steps, iterations.size());
+
+    if (++explored % DEADLINE_CHECK_INTERVAL == 0 && shouldStop()) {
+      return STOPPED;
+    }
+    current.expanded++;
+
+    MoveGenerator moveGenerator = expander.getMoveGenerator();
+    int[] buffer = buffer(steps);
+    int lowest = INFINITY;
+    for (int block = 0; block < moveGenerator.size(); block++) {
+      if (block == lastBlock) {
+        continue;
+      }
+
+      String name = moveGenerator.getName(block);
+      int count = moveGenerator.slides(board, block, buffer);
+      for (int i = 1; i <= count; i++) {
+        int x = buffer[3 * i + 1];
+        int y = buffer[3 * i + 2];
+        board.shift(name, x, y);
+        record(steps, block, x, y);
+
+        int result = search(steps + 1, bound, block);
+        if (result == FOUND || result == STOPPED) {
+          return result;
+        }
+
+        board.shift(name, -x, -y);
+        lowest = Math.min(lowest, result);
+      }
+    }
+
+    return lowest;
+  }
+
+  /**
+   * Get the slide buffer of a depth.
+   *
+   * @param steps    Depth
+   * @return         Buffer
+   */
+  private int[] buffer(final int steps) {
+    while (buffers.size() <= steps) {
+      buffers.add(new int[3 * board.getGeometry().cells()]);
+    }
+
+    return buffers.get(steps);
+  }
+
+  /**
+   * Record a step of the current path.
+   *
+   * @param steps    Depth of the step
+   * @param block    Moved block
+   * @param x        Horizontal offset
+   * @param y        Vertical offset
+   */
+  private void record(final int steps, final int block, final int x, final int y) {
+    if (steps == pathBlocks.length) {
+      pathBlocks = Arrays.copyOf(pathBlocks, steps * 2);
+      pathX = Arrays.copyOf(pathX, steps * 2);
+      pathY = Arrays.copyOf(pathY, steps * 2);
+    }
+
+    pathBlocks[steps] = block;
+    pathX[steps] = x;
+    pathY[steps] = y;
+  }
+
+  /**
+   * Rebuild the boards of the solution from the recorded path.
+   *
+   * @param puzzle    Initial board
+   * @param length    Number of steps
+   * @return          Solved board, linked to the previous boards
+   */
+  private KlotskiBoard replay(final KlotskiBoard puzzle, final int length) {
+    KlotskiBoard last = puzzle;
+    for (int i = 0; i < length; i++) {
+      KlotskiBoard next = last.copy();
+      next.shift(expander.getMoveGenerator().getName(pathBlocks[i]), pathX[i], pathY[i]);
+      next.setPrev(last);
+      last = next;
+    }
+
+    return last;
+  }
+
+}
@@ -1,156 +1,212 @@
 package org.shinthirty.klotski;
 
-import java.io.BufferedWriter;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayDeque;
-import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import org.shinthirty.klotski.models.Direction;
 import org.shinthirty.klotski.models.KlotskiBoard;
 
 /**
- * Klotski solver.
+ * Breadth-first klotski solver. The visited set, the queue and the move generator are kept
+ * between calls, so solving many puzzles of the same geometry with one instance does not
+ * reallocate them. The queue may hold boards on the heap, or their hashes compressed outside of
+ * the heap for the widest searches. An instance is not thread-safe except for {@link #cancel()}.
  *
  * @author shinthirty
  */
-class KlotskiSolver {
+public class KlotskiSolver extends AbstractSolver {
+
+  /**
+   * Number of boards explored between two checks of the deadline and of cancellation.
+   */
+  private static final int DEADLINE_CHECK_INTERVAL = 1024;
 
   /**
    * Visited set.
    */
-  private Set<Long> visited;
+  private final Set<Long> visited;
 
   /**
    * Unvisited queue.
    */
-  private Deque<KlotskiBoard> unvisited;
+  private final Deque<KlotskiBoard> unvisited;
 
   /**
-   * Output file path.
+   * Whether to use the packed move generator when the puzzle supports it.
    */
-  private String outputFile;
+  private final boolean packed;
 
   /**
-   * Constructor.
-   *
-   * @param configuration    Initial configuration of klotski
-   * @param outputFile       Output file path
+   * Frontier stored outside of the heap, null to queue boards on the heap.
    */
-  KlotskiSolver(final String configuration, final String outputFile) {
-    visited = new HashSet<>(65536);
-    unvisited = new ArrayDeque<>();
+  private final OffHeapFrontier frontier;
 
-    KlotskiBoard puzzle = KlotskiBoard.parse(configuration);
-    unvisited.add(puzzle);
-    visited.add(puzzle.hash());
-    this.outputFile = outputFile;
+  /**
+   * Hash of the board each visited board was reached from, used with the off-heap frontier.
+   */
+  private final Map<Long, Long> parents;
+
+  /**
+   * Constructor using the packed move generator.
+   */
+  public KlotskiSolver() {
+    this(true);
   }
 
   /**
-   * Generate the next possible puzzle boards from the current puzzle board using legal moves.
+   * Constructor.
    *
-   * @param current    Current puzzle board
-   * @return           Next possible puzzle boards
+   * @param packed    Whether to use the packed move generator when the puzzle supports it
    */
-  private Collection<KlotskiBoard> nextBoards(final KlotskiBoard current) {
-    List<KlotskiBoard> nextBoards = new ArrayList<>();
-
-    for (String name : current.getBlocks().keySet()) {
-      findNextBoards(current, name, nextBoards);
-    }
-
-    nextBoards.forEach(nextBoard -> nextBoard.setPrev(current));
-    return nextBoards;
+  public KlotskiSolver(final boolean packed) {
+    this(packed, false);
   }
 
   /**
-   * Find out all next klotski boards reachable by moving the named block from the current klotski
-   * board.
+   * Constructor.
    *
-   * @param current       Current klotski board
-   * @param name          Name of the block to be moved
-   * @param nextBoards    Reachable next boards
+   * @param packed     Whether to use the packed move generator when the puzzle supports it
+   * @param offHeap    Whether to queue the frontier as compressed hashes outside of the heap
+   *                   instead of boards on the heap, for boards of at most
+   *                   {@link KlotskiBoard#MAX_HASHED_CELLS} grids
    */
-  private void findNextBoards(final KlotskiBoard current, final String name,
-      final List<KlotskiBoard> nextBoards) {
-    List<KlotskiBoard> nexts = new ArrayList<>();
-    for (Direction direction : Direction.values()) {
-      if (current.canMove(name, direction)) {
-        KlotskiBoard next = current.move(name, direction);
-        if (!visited.contains(next.hash())) {
-          nexts.add(next);
-          nextBoards.add(next);
-          visited.add(next.hash());
-        }
+  public KlotskiSolver(final boolean packed, final boolean offHeap) {
+    this.packed = packed;
+    if (offHeap) {
+      visited = null;
+      unvisited = null;
+      frontier = new OffHeapFrontier();
+      parents = new HashMap<>(65536);
+    } else {
+      visited = new HashSet<>(65536);
+      unvisited = new ArrayDeque<>();
+      frontier = null;
+      parents = null;
+    }
+  }
+
+  @Override
+  protected Solution run(final KlotskiBoard puzzle) {
+    expander = Expander.of(puzzle, packed, expander);
+
+    if (frontier != null) {
+      puzzle.checkHashedCells();
+      try {
+        return searchOffHeap(puzzle);
+      } finally {
+        frontier.clear();
+        parents.clear();
       }
     }
 
-    nexts.forEach(next -> findNextBoards(next, name, nextBoards));
+    try {
+      return search(puzzle);
+    } finally {
+      visited.clear();
+      unvisited.clear();
+    }
   }
 
   /**
-   * Solve the puzzle and display the steps.
+   * Breadth-first search queuing boards on the heap.
    *
+   * @param puzzle    Parsed klotski puzzle
+   * @return          {@link Solution}
    */
-  void solve() {
-    KlotskiBoard current;
+  private Solution search(final KlotskiBoard puzzle) {
+    unvisited.add(puzzle);
+    visited.add(puzzle.hash());
 
-    int total = 0;
-    int numberOfSteps = 0;
+    long explored = 0;
     while (!unvisited.isEmpty()) {
-      current = unvisited.poll();
-      total++;
+      if (explored % DEADLINE_CHECK_INTERVAL == 0 && shouldStop()) {
+        return Solution.unsolved(getStopped(), explored, elapsedMillis());
+      }
+
+      KlotskiBoard current = unvisited.poll();
+      explored++;
       if (current.isSolved()) {
-        numberOfSteps = generateSolution(current);
-        break;
+        return Solution.solved(current, true, explored, elapsedMillis());
       }
 
-      unvisited.addAll(nextBoards(current));
+      unvisited.addAll(expander.nextBoards(current, visited::add));
     }
 
-    System.out.format("%d steps, %d explored%n", numberOfSteps, total);
+    return Solution.unsolved(Solution.Status.UNSOLVABLE, explored, elapsedMillis());
   }
 
   /**
-   * Generate the solution steps.
+   * Breadth-first search queuing board hashes outside of the heap. Boards are decoded from their
+   * hash in batches as they are taken from the frontier, and the solution is rebuilt from the
+   * hashes of the boards it went through. The frontier is flushed at the end of every level, so
+   * that boards are still explored level by level.
    *
-   * @param solution    Solved KlotskiBoard
+   * @param puzzle    Parsed klotski puzzle
+   * @return          {@link Solution}
    */
-  private int generateSolution(final KlotskiBoard solution) {
-    Deque<KlotskiBoard> steps = new ArrayDeque<>();
+  private Solution searchOffHeap(final KlotskiBoard puzzle) {
+    frontier.add(puzzle.hash());
+    parents.put(puzzle.hash(), 0L);
+
+    long[] batch = new long[OffHeapFrontier.BLOCK_SIZE];
+    long explored = 0;
+    long level = 1;
+    long nextLevel = 0;
+    int count;
+    while ((count = frontier.poll(batch)) > 0) {
+      for (int i = 0; i < count; i++) {
+        if (explored % DEADLINE_CHECK_INTERVAL == 0 && shouldStop()) {
+          return Solution.unsolved(getStopped(), explored, elapsedMillis());
+        }
 
-    KlotskiBoard current = solution;
-    while (current != null) {
-      steps.push(current);
-      current = current.getPrev();
-    }
+        long key = batch[i];
+        KlotskiBoard current = puzzle.decode(key);
+        explored++;
+        if (current.isSolved()) {
+          return Solution.solved(rebuild(puzzle, key), true, explored, elapsedMillis());
+        }
+
+        for (KlotskiBoard next : expander.nextBoards(current,
+            hash -> parents.putIfAbsent(hash, key) == null)) {
+          frontier.add(next.hash());
+          nextLevel++;
+        }
 
-    int numberOfSteps = steps.size() - 1;
+        // Blocks are sorted, so keep the boards of the next level out of the blocks of this one.
+        if (--level == 0) {
+          frontier.flush();
+          level = nextLevel;
+          nextLevel = 0;
+        }
+      }
+    }
 
-    try (PrintWriter pw = new PrintWriter(new BufferedWriter(new OutputStreamWriter(
-        new FileOutputStream(outputFile), StandardCharsets.UTF_8)))) {
-      int step = 1;
-      pw.print("Solution\n");
+    return Solution.unsolved(Solution.Status.UNSOLVABLE, explored, elapsedMillis());
+  }
 
-      while (!steps.isEmpty()) {
-        current = steps.pop();
+  /**
+   * Rebuild the boards leading to a solved board from the recorded parents.
+   *
+   * @param puzzle    Parsed klotski puzzle
+   * @param solved    Hash of the solved board
+   * @return          Solved board, linked to the previous boards
+   */
+  private KlotskiBoard rebuild(final KlotskiBoard puzzle, final long solved) {
+    Deque<Long> keys = new ArrayDeque<>();
+    for (long key = solved; key != puzzle.hash(); key = parents.get(key)) {
+      keys.push(key);
+    }
 
-        pw.format("%d.\n%s\n", step, current.toString());
-        step++;
-      }
-    } catch (FileNotFoundException ex) {
-      ex.printStackTrace();
+    KlotskiBoard last = puzzle;
+    for (long key : keys) {
+      KlotskiBoard next = last.decode(key);
+      next.setPrev(last);
+      last = next;
     }
 
-    return numberOfSteps;
+    return last;
   }
 
 }
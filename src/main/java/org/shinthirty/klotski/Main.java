@@ -4,10 +4,21 @@ import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.ParameterException;
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.shinthirty.klotski.models.Heuristics;
+import org.shinthirty.klotski.models.KlotskiBoard;
 
 /**
  * Entry point.
@@ -22,6 +33,37 @@ public class Main implements Runnable {
   @Parameter(names = { "-o", "--outputFile" }, description = "Path of output file", required = true)
   private String outputFile;
 
+  @Parameter(names = { "-p", "--packed" }, description = "Use packed move generation")
+  private boolean packed;
+
+  @Parameter(names = { "--offHeap" }, description = "Queue the breadth-first frontier as "
+      + "compressed hashes outside of the heap")
+  private boolean offHeap;
+
+  @Parameter(names = { "-b", "--beam" }, description = "Beam widths, comma separated, to run a "
+      + "beam search per width in parallel instead of an optimal search")
+  private List<Integer> beamWidths = new ArrayList<>();
+
+  @Parameter(names = { "--ida" }, description = "Use iterative-deepening A* instead of "
+      + "breadth-first search")
+  private boolean ida;
+
+  @Parameter(names = { "--tableEntries" }, description = "Transposition table entries of "
+      + "iterative-deepening A*")
+  private int tableEntries = IdaStarSolver.DEFAULT_TABLE_ENTRIES;
+
+  @Parameter(names = { "-d", "--deadline" }, description = "Latency budget in milliseconds, "
+      + "returning the best solution found in time")
+  private Long deadline;
+
+  @Parameter(names = { "--portfolio" }, description = "Engines, comma separated among bfs, ida "
+      + "and anytime, to run concurrently, keeping the first proven result")
+  private List<String> portfolio = new ArrayList<>();
+
+  @Parameter(names = { "--portfolioLog" }, description = "File the winning engine of each "
+      + "portfolio run is appended to")
+  private String portfolioLog;
+
   /**
    * Entry point.
    *
@@ -61,8 +103,87 @@ public class Main implements Runnable {
       ex.printStackTrace();
     }
 
-    KlotskiSolver solver = new KlotskiSolver(sb.toString(), outputFile);
-    solver.solve();
+    KlotskiBoard puzzle = KlotskiBoard.parse(sb.toString());
+    Solution solution;
+    if (!portfolio.isEmpty()) {
+      List<PortfolioSolver.Engine> engines = new ArrayList<>();
+      portfolio.forEach(engine -> engines.add(
+          PortfolioSolver.Engine.valueOf(engine.trim().toUpperCase(Locale.ROOT))));
+      PortfolioSolver solver = new PortfolioSolver(engines, tableEntries);
+      solution = solver.solve(puzzle);
+      logWinner(solver.getWinner(), solution);
+    } else if (ida) {
+      IdaStarSolver solver = new IdaStarSolver(tableEntries);
+      solution = solver.solve(puzzle);
+      for (IdaStarSolver.Iteration iteration : solver.getIterations()) {
+        System.out.format("bound %d: %d expanded, %d pruned in iteration, %d pruned from earlier "
+            + "iterations, %d evicted%n", iteration.getBound(), iteration.getExpanded(),
+            iteration.getPrunedInIteration(), iteration.getPrunedFromEarlierIterations(),
+            iteration.getEvictions());
+      }
+      System.out.format("%d re-expansions avoided%n", solver.getReexpansionsAvoided());
+    } else if (deadline != null) {
+      AnytimeSolver solver = new AnytimeSolver(improved -> System.out.format(
+          "%d steps%s after %dms%n", improved.getSteps(), improved.isOptimal() ? " (optimal)" : "",
+          improved.getElapsedMillis()));
+      solution = solver.solve(puzzle, deadline, TimeUnit.MILLISECONDS);
+    } else if (beamWidths.isEmpty()) {
+      solution = new KlotskiSolver(packed, offHeap).solve(puzzle);
+    } else {
+      int[] widths = beamWidths.stream().mapToInt(Integer::intValue).toArray();
+      solution = BeamSearchSolver.solveParallel(puzzle, widths, Heuristics::score,
+          Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    if (solution.isSolved()) {
+      writeSolution(solution);
+    }
+
+    System.out.format("%d steps%s, %d explored%n", solution.getSteps(),
+        solution.isSolved() && !solution.isOptimal() ? " (not proven optimal)" : "",
+        solution.getExplored());
+  }
+
+  /**
+   * Report the engine which won a portfolio run and append it to the portfolio log.
+   *
+   * @param winner      Winning engine, null if none proved its result
+   * @param solution    Result of the portfolio
+   */
+  private void logWinner(final PortfolioSolver.Engine winner, final Solution solution) {
+    String name = winner != null ? winner.name().toLowerCase(Locale.ROOT) : "none";
+    System.out.format("winner: %s%n", name);
+    if (portfolioLog == null) {
+      return;
+    }
+
+    try (PrintWriter pw = new PrintWriter(new BufferedWriter(new OutputStreamWriter(
+        new FileOutputStream(portfolioLog, true), StandardCharsets.UTF_8)))) {
+      pw.format("%s %s %s %d %d%n", inputFile, String.join(",", portfolio), name,
+          solution.getSteps(), solution.getElapsedMillis());
+    } catch (FileNotFoundException ex) {
+      ex.printStackTrace();
+    }
+  }
+
+  /**
+   * Write the solution steps to the output file.
+   *
+   * @param solution    Solution of the puzzle
+   */
+  private void writeSolution(final Solution solution) {
+    try (PrintWriter pw = new PrintWriter(new BufferedWriter(new OutputStreamWriter(
+        new FileOutputStream(outputFile), StandardCharsets.UTF_8)))) {
+      int step = 1;
+      pw.print("Solution\n");
+
+      for (KlotskiBoard board : solution.getBoards()) {
+        pw.format("%d.\n%s\n", step, board.toString());
+        step++;
+      }
+    } catch (FileNotFoundException ex) {
+      ex.printStackTrace();
+    }
   }
 
 }
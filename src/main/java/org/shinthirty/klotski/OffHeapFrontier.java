@@ -0,0 +1,247 @@
+package org.shinthirty.klotski;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * First in first out queue of board hashes stored outside of the heap. Hashes are buffered in
+ * blocks of {@link #BLOCK_SIZE}, sorted, and written as the first hash followed by the varint
+ * encoded deltas to direct buffer segments of {@link #SEGMENT_BYTES}. Blocks are read back one at
+ * a time, so the order within a block is not kept but the order between blocks is. A breadth-first
+ * search flushes at the end of every level, so that a block never mixes two levels. Segments are
+ * allocated when needed and kept for reuse once read.
+ *
+ * @author shinthirty
+ */
+class OffHeapFrontier {
+
+  /**
+   * Number of hashes per block.
+   */
+  static final int BLOCK_SIZE = 4096;
+
+  /**
+   * Size of a segment in bytes.
+   */
+  static final int SEGMENT_BYTES = 1 << 20;
+
+  /**
+   * Largest encoded block: the count and one hash or delta of at most 10 bytes per entry.
+   */
+  private static final int MAX_BLOCK_BYTES = 5 + 10 * BLOCK_SIZE;
+
+  /**
+   * Number of read segments kept for reuse.
+   */
+  private static final int POOL_SIZE = 4;
+
+  /**
+   * Segments holding encoded blocks, the last one being written.
+   */
+  private final Deque<ByteBuffer> segments = new ArrayDeque<>();
+
+  /**
+   * Read segments kept for reuse.
+   */
+  private final Deque<ByteBuffer> pool = new ArrayDeque<>();
+
+  /**
+   * Hashes not encoded yet.
+   */
+  private final long[] pending = new long[BLOCK_SIZE];
+
+  /**
+   * Number of hashes not encoded yet.
+   */
+  private int pendingSize;
+
+  /**
+   * Read offset in the first segment.
+   */
+  private int readOffset;
+
+  /**
+   * Number of hashes in the queue.
+   */
+  private long size;
+
+  /**
+   * Add a hash to the end of the queue.
+   *
+   * @param key    Board hash, not negative
+   */
+  void add(final long key) {
+    pending[pendingSize++] = key;
+    size++;
+    if (pendingSize == BLOCK_SIZE) {
+      flush();
+    }
+  }
+
+  /**
+   * Remove the first block of hashes from the queue.
+   *
+   * @param batch    Receives the hashes, needs room for {@link #BLOCK_SIZE} of them
+   * @return         Number of hashes, 0 if the queue is empty
+   */
+  int poll(final long[] batch) {
+    if (!hasBlock()) {
+      flush();
+      if (!hasBlock()) {
+        return 0;
+      }
+    }
+
+    ByteBuffer segment = segments.peekFirst();
+    int count = (int) readVarint(segment);
+    long key = 0;
+    for (int i = 0; i < count; i++) {
+      key += readVarint(segment);
+      batch[i] = key;
+    }
+
+    size -= count;
+    return count;
+  }
+
+  /**
+   * Check if the queue is empty.
+   *
+   * @return    {@link Boolean}
+   */
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Get the number of hashes in the queue.
+   *
+   * @return    Number of hashes
+   */
+  long size() {
+    return size;
+  }
+
+  /**
+   * Get the number of bytes held outside of the heap, including segments kept for reuse.
+   *
+   * @return    Number of bytes
+   */
+  long capacity() {
+    return (long) (segments.size() + pool.size()) * SEGMENT_BYTES;
+  }
+
+  /**
+   * Empty the queue, keeping some segments for reuse.
+   */
+  void clear() {
+    while (!segments.isEmpty()) {
+      release(segments.pollFirst());
+    }
+
+    pendingSize = 0;
+    readOffset = 0;
+    size = 0;
+  }
+
+  /**
+   * Determine whether an encoded block is ready to be read, releasing the segments read up.
+   *
+   * @return    {@link Boolean} true if a block is available
+   */
+  private boolean hasBlock() {
+    while (!segments.isEmpty()) {
+      ByteBuffer first = segments.peekFirst();
+      if (readOffset < first.position()) {
+        return true;
+      }
+
+      if (segments.size() == 1) {
+        first.clear();
+        readOffset = 0;
+        return false;
+      }
+
+      release(segments.pollFirst());
+      readOffset = 0;
+    }
+
+    return false;
+  }
+
+  /**
+   * Sort and encode the pending hashes as one block, so that the hashes added later are read after
+   * them.
+   */
+  void flush() {
+    if (pendingSize == 0) {
+      return;
+    }
+
+    Arrays.sort(pending, 0, pendingSize);
+    ByteBuffer segment = segments.peekLast();
+    if (segment == null || segment.remaining() < MAX_BLOCK_BYTES) {
+      segment = pool.isEmpty() ? ByteBuffer.allocateDirect(SEGMENT_BYTES) : pool.pollFirst();
+      segments.addLast(segment);
+    }
+
+    writeVarint(segment, pendingSize);
+    long previous = 0;
+    for (int i = 0; i < pendingSize; i++) {
+      writeVarint(segment, pending[i] - previous);
+      previous = pending[i];
+    }
+
+    pendingSize = 0;
+  }
+
+  /**
+   * Keep a read segment for reuse if the pool has room, otherwise leave it to the garbage
+   * collector.
+   *
+   * @param segment    Read segment
+   */
+  private void release(final ByteBuffer segment) {
+    if (pool.size() < POOL_SIZE) {
+      segment.clear();
+      pool.addLast(segment);
+    }
+  }
+
+  /**
+   * Write an unsigned varint.
+   *
+   * @param segment    Segment
+   * @param value      Value, not negative
+   */
+  private static void writeVarint(final ByteBuffer segment, final long value) {
+    long remaining = value;
+    while ((remaining & ~0x7FL) != 0) {
+      segment.put((byte) (remaining & 0x7F | 0x80));
+      remaining >>>= 7;
+    }
+    segment.put((byte) remaining);
+  }
+
+  /**
+   * Read an unsigned varint at the read offset.
+   *
+   * @param segment    Segment
+   * @return           Value
+   */
+  private long readVarint(final ByteBuffer segment) {
+    long value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = segment.get(readOffset++);
+      value |= (long) (b & 0x7F) << shift;
+      shift += 7;
+    } while (b < 0);
+
+    return value;
+  }
+
+}
@@ -0,0 +1,233 @@
+package org.shinthirty.klotski;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.shinthirty.klotski.models.KlotskiBoard;
+
+/**
+ * Portfolio of search engines run concurrently on the same puzzle. The first engine to prove its
+ * result, an optimal solution or the absence of any, wins and the others are cancelled. The
+ * engines share the read-only move tables of the puzzle. An engine rejecting the puzzle with an
+ * {@link IllegalArgumentException}, as iterative-deepening A* does beyond
+ * {@link org.shinthirty.klotski.models.MoveGenerator#MAX_BLOCKS} blocks, leaves it to the others,
+ * and the exception is thrown if every engine rejects it. Any other failure of an engine is thrown
+ * as an {@link IllegalStateException}.
+ *
+ * @author shinthirty
+ */
+public class PortfolioSolver extends AbstractSolver {
+
+  /**
+   * Search engines able to prove their result.
+   */
+  public enum Engine {
+    BFS,
+    IDA,
+    ANYTIME;
+
+    /**
+     * Create a solver of this engine.
+     *
+     * @param expander        Successor generator shared between the engines
+     * @param tableEntries    Transposition table entries of iterative-deepening A*
+     * @return                {@link Solver}
+     */
+    Solver create(final Expander expander, final int tableEntries) {
+      switch (this) {
+        case IDA:
+          IdaStarSolver ida = new IdaStarSolver(tableEntries);
+          ida.setExpander(expander);
+          return ida;
+        case ANYTIME:
+          AnytimeSolver anytime = new AnytimeSolver(improved -> { });
+          anytime.setExpander(expander);
+          return anytime;
+        default:
+          KlotskiSolver bfs = new KlotskiSolver();
+          bfs.setExpander(expander);
+          return bfs;
+      }
+    }
+  }
+
+  /**
+   * Time to wait for the engines to stop once the result is known, in milliseconds.
+   */
+  private static final long TERMINATION_TIMEOUT_MILLIS = 5000;
+
+  /**
+   * Name of the threads running the engines.
+   */
+  static final String THREAD_NAME = "portfolio-engine";
+
+  /**
+   * Engines of the portfolio.
+   */
+  private final List<Engine> engines;
+
+  /**
+   * Transposition table entries of iterative-deepening A*.
+   */
+  private final int tableEntries;
+
+  /**
+   * Engine which proved the result of the last search, null if none did.
+   */
+  private volatile Engine winner;
+
+  /**
+   * Constructor using {@link IdaStarSolver#DEFAULT_TABLE_ENTRIES} transposition table entries.
+   *
+   * @param engines    Engines of the portfolio, each run on its own thread
+   */
+  public PortfolioSolver(final List<Engine> engines) {
+    this(engines, IdaStarSolver.DEFAULT_TABLE_ENTRIES);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param engines         Engines of the portfolio, each run on its own thread
+   * @param tableEntries    Transposition table entries of iterative-deepening A*
+   */
+  public PortfolioSolver(final List<Engine> engines, final int tableEntries) {
+    if (engines.isEmpty()) {
+      throw new IllegalArgumentException("At least one engine is required");
+    }
+
+    this.engines = new ArrayList<>(engines);
+    this.tableEntries = tableEntries;
+  }
+
+  @Override
+  protected Solution run(final KlotskiBoard puzzle) {
+    winner = null;
+
+    // Build the shared tables and fill the lazily computed caches of the shared puzzle before
+    // other threads read them.
+    Expander expander = Expander.of(puzzle, true, null);
+    puzzle.hash();
+    if (expander.getMoveGenerator() != null) {
+      expander.getMoveGenerator().legalMoves(puzzle);
+    }
+
+    // Daemon threads, so that an engine still running after the bounded wait does not keep the
+    // process alive.
+    ExecutorService executor = Executors.newFixedThreadPool(engines.size(), runnable -> {
+      Thread thread = new Thread(runnable, THREAD_NAME);
+      thread.setDaemon(true);
+      return thread;
+    });
+    CompletionService<Outcome> completion = new ExecutorCompletionService<>(executor);
+    // Cancelled once the result is known, or with the search itself.
+    Cancellation losers = new Cancellation(getCancellation());
+    long timeoutNanos = remainingNanos();
+    for (Engine engine : engines) {
+      Solver solver = engine.create(expander, tableEntries);
+      completion.submit(() -> new Outcome(engine,
+          solver.solve(puzzle, timeoutNanos, TimeUnit.NANOSECONDS, losers)));
+    }
+
+    try {
+      Solution best = null;
+      IllegalArgumentException unsupported = null;
+      for (int i = 0; i < engines.size(); i++) {
+        Outcome outcome;
+        try {
+          outcome = completion.take().get();
+        } catch (ExecutionException ex) {
+          // An engine unable to handle the puzzle leaves the others to it, any other failure is
+          // a bug.
+          if (!(ex.getCause() instanceof IllegalArgumentException)) {
+            throw new IllegalStateException(ex.getCause());
+          }
+
+          unsupported = (IllegalArgumentException) ex.getCause();
+          continue;
+        }
+
+        Solution solution = outcome.solution;
+        if (solution.isSolved() && solution.isOptimal()
+            || solution.getStatus() == Solution.Status.UNSOLVABLE) {
+          winner = outcome.engine;
+          return solution;
+        }
+
+        if (best == null || solution.isSolved()
+            && (!best.isSolved() || solution.getSteps() < best.getSteps())) {
+          best = solution;
+        }
+      }
+
+      if (best == null) {
+        throw unsupported;
+      }
+
+      return best;
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      return Solution.unsolved(Solution.Status.CANCELLED, 0, elapsedMillis());
+    } finally {
+      losers.cancel();
+      executor.shutdownNow();
+      awaitTermination(executor);
+    }
+  }
+
+  /**
+   * Wait a bounded time for the cancelled engines to stop, so that none of them keeps a thread busy
+   * once the result is returned. Engines notice a cancel within a few thousand boards.
+   *
+   * @param executor    Executor running the engines
+   */
+  private static void awaitTermination(final ExecutorService executor) {
+    try {
+      executor.awaitTermination(TERMINATION_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Get the engine which proved the result of the last search.
+   *
+   * @return    {@link Engine}, or null if no engine proved its result
+   */
+  public Engine getWinner() {
+    return winner;
+  }
+
+  /**
+   * Result of one engine.
+   */
+  private static final class Outcome {
+
+    /**
+     * Engine.
+     */
+    private final Engine engine;
+
+    /**
+     * Result of the engine.
+     */
+    private final Solution solution;
+
+    /**
+     * Constructor.
+     *
+     * @param engine      Engine
+     * @param solution    Result of the engine
+     */
+    Outcome(final Engine engine, final Solution solution) {
+      this.engine = engine;
+      this.solution = solution;
+    }
+  }
+
+}
@@ -0,0 +1,595 @@
+package org.shinthirty.klotski;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.beust.jcommander.ParameterException;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.shinthirty.klotski.models.Geometry;
+import org.shinthirty.klotski.models.KlotskiBoard;
+
+/**
+ * Generator of hard klotski puzzles. Every legal placement of a multiset of block shapes with the
+ * target in place is enumerated, and a single breadth-first search backwards from all of them at
+ * once, each level expanded in parallel, finds the optimal number of steps of every solvable
+ * position, since every move can be undone. The positions farthest from the goal are written out
+ * in the {@link KlotskiBoard#parse} format, hardest first. The seed picks among positions of the
+ * same number of steps, so the corpus only depends on the parameters.
+ *
+ * @author shinthirty
+ */
+public class PuzzleGenerator implements Runnable {
+
+  /**
+   * Maximum number of cells, bounded by the 3 bits per cell used by {@link KlotskiBoard#hash()}.
+   */
+  private static final int MAX_CELLS = KlotskiBoard.MAX_HASHED_CELLS;
+
+  /**
+   * Maximum number of distinct block shapes, the target counting as a shape of its own, bounded by
+   * the 3 bits per cell used by {@link KlotskiBoard#hash()}.
+   */
+  private static final int MAX_SHAPES = KlotskiBoard.MAX_INDEX;
+
+  /**
+   * Number of tasks each level of the search is split into per thread, balancing the threads.
+   */
+  private static final int TASKS_PER_THREAD = 4;
+
+  /**
+   * Mark of a grid left empty by the enumeration.
+   */
+  private static final String EMPTY = ".";
+
+  @Parameter(names = { "-W", "--width" }, description = "Number of columns", required = true)
+  private int width;
+
+  @Parameter(names = { "-H", "--height" }, description = "Number of rows", required = true)
+  private int height;
+
+  @Parameter(names = { "-b", "--blocks" }, description = "Block shapes as WxH[*count], separated "
+      + "by commas, the first shape being the target (e.g. 2x2,1x2*4,2x1,1x1*4)", required = true)
+  private String blocks;
+
+  @Parameter(names = { "-x", "--targetX" }, description = "Target column", required = true)
+  private int targetX;
+
+  @Parameter(names = { "-y", "--targetY" }, description = "Target row", required = true)
+  private int targetY;
+
+  @Parameter(names = { "-s", "--seed" }, description = "Seed picking among positions of the "
+      + "same number of steps")
+  private long seed = 0;
+
+  @Parameter(names = { "-m", "--maxPositions" }, description = "Maximum number of solvable "
+      + "positions to enumerate")
+  private int maxPositions = 1 << 22;
+
+  @Parameter(names = { "-n", "--count" }, description = "Number of puzzles to keep")
+  private int count = 10;
+
+  @Parameter(names = { "-t", "--threads" }, description = "Number of search threads")
+  private int threads = Runtime.getRuntime().availableProcessors();
+
+  @Parameter(names = { "-o", "--outputDir" }, description = "Output directory", required = true)
+  private String outputDir;
+
+  /**
+   * Board the positions are decoded from, the first solved board enumerated.
+   */
+  private KlotskiBoard template;
+
+  /**
+   * Entry point.
+   *
+   * @param args    Command line arguments
+   */
+  public static void main(final String[] args) {
+    long startTime = System.currentTimeMillis();
+
+    PuzzleGenerator generator = new PuzzleGenerator();
+    JCommander jc = JCommander.newBuilder().addObject(generator).build();
+    try {
+      jc.parse(args);
+    } catch (ParameterException ex) {
+      jc.usage();
+      return;
+    }
+
+    generator.run();
+
+    long stopTime = System.currentTimeMillis();
+    long elapsedTime = stopTime - startTime;
+    System.out.format("%dms elapsed%n", elapsedTime);
+  }
+
+  @Override
+  public void run() {
+    List<int[]> shapes = parseShapes(blocks);
+    validate(shapes);
+
+    template = null;
+    write(select(levels(goals(shapes))));
+  }
+
+  /**
+   * Parse the block shape specification.
+   *
+   * @param specification    Shapes as WxH[*count] separated by commas
+   * @return                 Width and height of every block, the target first
+   */
+  static List<int[]> parseShapes(final String specification) {
+    List<int[]> shapes = new ArrayList<>();
+    for (String part : specification.split(",")) {
+      String[] repeat = part.trim().split("\\*");
+      String[] size = repeat[0].split("x");
+      int times = repeat.length > 1 ? Integer.valueOf(repeat[1]) : 1;
+      for (int i = 0; i < times; i++) {
+        shapes.add(new int[] { Integer.valueOf(size[0]), Integer.valueOf(size[1]) });
+      }
+    }
+
+    return shapes;
+  }
+
+  /**
+   * Make sure the requested geometry can be represented by {@link KlotskiBoard}.
+   *
+   * @param shapes    Block shapes
+   */
+  private void validate(final List<int[]> shapes) {
+    if (width * height > MAX_CELLS) {
+      throw new IllegalArgumentException("Board must not have more than " + MAX_CELLS + " cells");
+    }
+
+    Set<Integer> distinct = new HashSet<>();
+    int area = 0;
+    for (int i = 0; i < shapes.size(); i++) {
+      int[] shape = shapes.get(i);
+      // The target is hashed apart from the blocks sharing its shape.
+      distinct.add(i == 0 ? -1 : shape[0] * 16 + shape[1]);
+      area += shape[0] * shape[1];
+    }
+
+    if (distinct.size() > MAX_SHAPES) {
+      throw new IllegalArgumentException("No more than " + MAX_SHAPES + " shapes are supported");
+    }
+
+    if (area >= width * height) {
+      throw new IllegalArgumentException("Blocks must leave at least one empty cell");
+    }
+
+    int[] target = shapes.get(0);
+    if (targetX < 0 || targetY < 0 || targetX + target[0] > width
+        || targetY + target[1] > height) {
+      throw new IllegalArgumentException("Target position is outside of the board");
+    }
+  }
+
+  /**
+   * Enumerate every legal placement of the blocks with the target in place. Blocks of the same
+   * shape are interchangeable, so every placement is enumerated once by filling the grids in scan
+   * order, each free grid being either left empty or the top-left grid of a block of a shape not
+   * all placed yet.
+   *
+   * @param shapes    Block shapes, the target first
+   * @return          Hashes of the solved boards, sorted
+   */
+  private long[] goals(final List<int[]> shapes) {
+    // Blocks are named shape after shape, so every placement has the same blocks of every shape.
+    List<int[]> kinds = new ArrayList<>();
+    List<Integer> counts = new ArrayList<>();
+    int area = 0;
+    for (int[] shape : shapes) {
+      area += shape[0] * shape[1];
+      int kind = 0;
+      while (kind < kinds.size() && (kind == 0 || !Arrays.equals(kinds.get(kind), shape))) {
+        kind++;
+      }
+      if (kind == kinds.size()) {
+        kinds.add(shape);
+        counts.add(0);
+      }
+      counts.set(kind, counts.get(kind) + 1);
+    }
+
+    int[] next = new int[kinds.size()];
+    int[] end = new int[kinds.size()];
+    for (int kind = 0, ordinal = 0; kind < kinds.size(); kind++) {
+      next[kind] = ordinal;
+      ordinal += counts.get(kind);
+      end[kind] = ordinal;
+    }
+
+    String[][] grid = new String[height][width];
+    fill(grid, targetX, targetY, shapes.get(0), name(next[0]++));
+    Set<Long> goals = new HashSet<>();
+    place(grid, 0, kinds, next, end, width * height - area, goals);
+
+    long[] sorted = goals.stream().mapToLong(Long::longValue).toArray();
+    Arrays.sort(sorted);
+    return sorted;
+  }
+
+  /**
+   * Place the remaining blocks from a grid on, in scan order.
+   *
+   * @param grid     Cells occupied so far, {@link #EMPTY} for the ones left empty
+   * @param cell     Index of the first grid not decided yet
+   * @param kinds    Distinct shapes, the target first
+   * @param next     Ordinal of the next block of every shape to place
+   * @param end      Ordinal following the last block of every shape
+   * @param empty    Number of grids left to leave empty
+   * @param goals    Hashes of the solved boards found
+   */
+  private void place(final String[][] grid, final int cell, final List<int[]> kinds,
+      final int[] next, final int[] end, final int empty, final Set<Long> goals) {
+    int free = cell;
+    while (free < width * height && grid[free / width][free % width] != null) {
+      free++;
+    }
+
+    if (free == width * height) {
+      goals.add(hash(grid));
+      checkPositions(goals.size());
+      return;
+    }
+
+    int x = free % width;
+    int y = free / width;
+    if (empty > 0) {
+      grid[y][x] = EMPTY;
+      place(grid, free + 1, kinds, next, end, empty - 1, goals);
+      grid[y][x] = null;
+    }
+
+    for (int kind = 1; kind < kinds.size(); kind++) {
+      int[] shape = kinds.get(kind);
+      if (next[kind] < end[kind] && x + shape[0] <= width && y + shape[1] <= height
+          && fits(grid, x, y, shape)) {
+        fill(grid, x, y, shape, name(next[kind]++));
+        place(grid, free + 1, kinds, next, end, empty, goals);
+        fill(grid, x, y, shape, null);
+        next[kind]--;
+      }
+    }
+  }
+
+  /**
+   * Hash a placement as {@link KlotskiBoard#hash()} does. The first placement is parsed as the
+   * template, whose block indexes hash the others, since parsing does not number shapes the same
+   * way for every placement.
+   *
+   * @param grid    Cells of the board, {@link #EMPTY} for the empty ones
+   * @return        Hash of the board
+   */
+  private long hash(final String[][] grid) {
+    if (template == null) {
+      template = KlotskiBoard.parse(format(grid));
+    }
+
+    long hash = 0;
+    for (String[] row : grid) {
+      for (String name : row) {
+        hash = hash << 3 | (EMPTY.equals(name) ? 0 : template.getBlocks().get(name).getIndex());
+      }
+    }
+
+    return hash;
+  }
+
+  /**
+   * Search breadth-first from the solved boards. Moves can be undone, so the level of a board is
+   * its optimal number of steps. The boards of a level are expanded in parallel and sorted, so
+   * that the levels do not depend on the threads.
+   *
+   * @param goals    Hashes of the solved boards, sorted
+   * @return         Hashes of the boards of every number of steps, sorted
+   */
+  private List<long[]> levels(final long[] goals) {
+    // Build the shared tables and fill the lazily computed caches of the template before other
+    // threads read them.
+    Expander expander = Expander.of(template, true, null);
+    template.hash();
+    if (expander.getMoveGenerator() != null) {
+      expander.getMoveGenerator().legalMoves(template);
+    }
+
+    Set<Long> visited = ConcurrentHashMap.newKeySet();
+    Arrays.stream(goals).forEach(visited::add);
+    List<long[]> levels = new ArrayList<>();
+    levels.add(goals);
+
+    int tasks = Math.max(1, threads) * TASKS_PER_THREAD;
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+    try {
+      for (long[] level = goals; level.length > 0; ) {
+        List<Future<long[]>> futures = new ArrayList<>();
+        int chunk = (level.length + tasks - 1) / tasks;
+        for (int from = 0; from < level.length; from += chunk) {
+          long[] boards = level;
+          int start = from;
+          int end = Math.min(from + chunk, level.length);
+          futures.add(executor.submit(() -> expand(expander, boards, start, end, visited)));
+        }
+
+        long[] next = new long[0];
+        for (Future<long[]> future : futures) {
+          long[] found = future.get();
+          next = Arrays.copyOf(next, next.length + found.length);
+          System.arraycopy(found, 0, next, next.length - found.length, found.length);
+        }
+        Arrays.sort(next);
+        checkPositions(visited.size());
+
+        if (next.length > 0) {
+          levels.add(next);
+        }
+        level = next;
+      }
+
+      return levels;
+    } catch (InterruptedException | ExecutionException ex) {
+      throw new IllegalStateException(ex);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Find the boards not visited yet one move away from a range of boards.
+   *
+   * @param expander    Successor generator of the template
+   * @param level       Hashes of the boards of a level
+   * @param from        First board of the range, inclusive
+   * @param to          Last board of the range, exclusive
+   * @param visited     Hashes of the boards visited, shared between the threads
+   * @return            Hashes of the boards found
+   */
+  private long[] expand(final Expander expander, final long[] level, final int from,
+      final int to, final Set<Long> visited) {
+    long[] found = new long[16];
+    int size = 0;
+    for (int i = from; i < to; i++) {
+      for (KlotskiBoard next : expander.nextBoards(template.decode(level[i]), visited::add)) {
+        if (size == found.length) {
+          found = Arrays.copyOf(found, 2 * size);
+        }
+        found[size++] = next.hash();
+      }
+    }
+
+    return Arrays.copyOf(found, size);
+  }
+
+  /**
+   * Make sure the number of positions enumerated stays within the limit.
+   *
+   * @param positions    Number of positions enumerated so far
+   */
+  private void checkPositions(final int positions) {
+    if (positions > maxPositions) {
+      throw new IllegalArgumentException("More than " + maxPositions
+          + " positions, raise --maxPositions or use fewer blocks");
+    }
+  }
+
+  /**
+   * Pick the positions farthest from the goal, hardest first. When a number of steps has more
+   * positions than are left to pick, the seed picks which.
+   *
+   * @param levels    Hashes of the boards of every number of steps
+   * @return          At most {@code count} unsolved positions
+   */
+  private List<Position> select(final List<long[]> levels) {
+    List<Position> selected = new ArrayList<>();
+    Random random = new Random(seed);
+    for (int steps = levels.size() - 1; steps > 0 && selected.size() < count; steps--) {
+      long[] level = levels.get(steps).clone();
+      int picked = Math.min(count - selected.size(), level.length);
+      for (int i = 0; i < picked; i++) {
+        int j = i + random.nextInt(level.length - i);
+        long hash = level[j];
+        level[j] = level[i];
+        selected.add(new Position(template.decode(hash), steps));
+      }
+    }
+
+    return selected;
+  }
+
+  /**
+   * Format a board in the {@link KlotskiBoard#parse} format.
+   *
+   * @param board    Klotski board
+   * @return         Puzzle configuration
+   */
+  private String configuration(final KlotskiBoard board) {
+    Geometry geometry = board.getGeometry();
+    String[][] grid = new String[height][width];
+    board.getBlocks().forEach((name, block) -> {
+      for (int y = 0; y < height; y++) {
+        for (int x = 0; x < width; x++) {
+          if ((block.getValue() & geometry.toValue(x, y)) != 0) {
+            grid[y][x] = name;
+          }
+        }
+      }
+    });
+
+    return format(grid);
+  }
+
+  /**
+   * Determine whether a block fits at the given position.
+   *
+   * @param grid     Cells occupied so far
+   * @param x        Horizontal position
+   * @param y        Vertical position
+   * @param shape    Width and height of the block
+   * @return         {@link Boolean} true if all cells are free
+   */
+  private static boolean fits(final String[][] grid, final int x, final int y, final int[] shape) {
+    for (int j = y; j < y + shape[1]; j++) {
+      for (int i = x; i < x + shape[0]; i++) {
+        if (grid[j][i] != null) {
+          return false;
+        }
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Fill the cells of a block.
+   *
+   * @param grid     Cells occupied so far
+   * @param x        Horizontal position
+   * @param y        Vertical position
+   * @param shape    Width and height of the block
+   * @param name     Name of the block
+   */
+  private static void fill(final String[][] grid, final int x, final int y, final int[] shape,
+      final String name) {
+    for (int j = y; j < y + shape[1]; j++) {
+      for (int i = x; i < x + shape[0]; i++) {
+        grid[j][i] = name;
+      }
+    }
+  }
+
+  /**
+   * Name of the i-th block: A to Z, then AA, AB and so on.
+   *
+   * @param i    Block ordinal
+   * @return     Block name
+   */
+  private static String name(final int i) {
+    String name = String.valueOf((char) ('A' + i % 26));
+    return i < 26 ? name : name(i / 26 - 1) + name;
+  }
+
+  /**
+   * Format a grid in the {@link KlotskiBoard#parse} format.
+   *
+   * @param grid    Cells of the board
+   * @return        Puzzle configuration
+   */
+  private String format(final String[][] grid) {
+    StringBuilder sb = new StringBuilder();
+    sb.append(width).append(' ').append(height).append('\n');
+    for (String[] row : grid) {
+      for (int x = 0; x < width; x++) {
+        sb.append(row[x] != null ? row[x] : ".").append(x < width - 1 ? ' ' : '\n');
+      }
+    }
+
+    sb.append(name(0)).append('\n');
+    sb.append(targetX).append(' ').append(targetY).append('\n');
+    return sb.toString();
+  }
+
+  /**
+   * Write the puzzles and a manifest listing their seed, steps and difficulty.
+   *
+   * @param selected    Puzzles to be written, hardest first
+   */
+  private void write(final List<Position> selected) {
+    File directory = new File(outputDir);
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IllegalStateException("Cannot create " + outputDir);
+    }
+
+    try (PrintWriter manifest = writer(new File(directory, "manifest.txt"))) {
+      int rank = 1;
+      for (Position position : selected) {
+        String file = String.format("puzzle-%03d.txt", rank);
+        try (PrintWriter pw = writer(new File(directory, file))) {
+          pw.print(configuration(position.board));
+        }
+
+        manifest.format("%s %d %s %d%n", file, position.steps, difficulty(position.steps), seed);
+        System.out.format("%s: %d steps (%s)%n", file, position.steps,
+            difficulty(position.steps));
+        rank++;
+      }
+    } catch (FileNotFoundException ex) {
+      ex.printStackTrace();
+    }
+  }
+
+  /**
+   * Create a UTF-8 writer for a file.
+   *
+   * @param file    Output file
+   * @return        {@link PrintWriter}
+   * @throws FileNotFoundException    if the file cannot be created
+   */
+  private static PrintWriter writer(final File file) throws FileNotFoundException {
+    return new PrintWriter(new BufferedWriter(new OutputStreamWriter(
+        new FileOutputStream(file), StandardCharsets.UTF_8)));
+  }
+
+  /**
+   * Difficulty tag of a puzzle.
+   *
+   * @param steps    Optimal number of steps
+   * @return         Difficulty tag
+   */
+  static String difficulty(final int steps) {
+    if (steps < 20) {
+      return "easy";
+    } else if (steps < 50) {
+      return "medium";
+    } else if (steps < 100) {
+      return "hard";
+    }
+
+    return "expert";
+  }
+
+  /**
+   * A generated puzzle.
+   */
+  private static class Position {
+
+    /**
+     * Board of the puzzle.
+     */
+    private final KlotskiBoard board;
+
+    /**
+     * Optimal number of steps.
+     */
+    private final int steps;
+
+    /**
+     * Constructor.
+     *
+     * @param board    Board of the puzzle
+     * @param steps    Optimal number of steps
+     */
+    Position(final KlotskiBoard board, final int steps) {
+      this.board = board;
+      this.steps = steps;
+    }
+  }
+
+}
@@ -0,0 +1,121 @@
+package org.shinthirty.klotski;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import lombok.Data;
+import org.shinthirty.klotski.models.KlotskiBoard;
+import org.shinthirty.klotski.models.Move;
+
+/**
+ * Result of solving a klotski puzzle.
+ *
+ * @author shinthirty
+ */
+@Data
+public class Solution {
+
+  /**
+   * Outcome of a search. {@code NOT_FOUND} is returned by incomplete searches which ran out of
+   * candidates without proving that the puzzle has no solution.
+   */
+  public enum Status {
+    SOLVED,
+    UNSOLVABLE,
+    NOT_FOUND,
+    TIMED_OUT,
+    CANCELLED
+  }
+
+  /**
+   * Outcome of the search.
+   */
+  private final Status status;
+
+  /**
+   * Boards from the initial board to the solved board, empty unless solved.
+   */
+  private final List<KlotskiBoard> boards;
+
+  /**
+   * Moves between consecutive boards, empty unless solved.
+   */
+  private final List<Move> moves;
+
+  /**
+   * Whether the solution is proven to have the fewest steps.
+   */
+  private final boolean optimal;
+
+  /**
+   * Number of boards explored.
+   */
+  private final long explored;
+
+  /**
+   * Elapsed time in milliseconds.
+   */
+  private final long elapsedMillis;
+
+  /**
+   * Check if a solution was found.
+   *
+   * @return    {@link Boolean}
+   */
+  public boolean isSolved() {
+    return status == Status.SOLVED;
+  }
+
+  /**
+   * Get the number of steps.
+   *
+   * @return    Number of moves, 0 unless solved
+   */
+  public int getSteps() {
+    return moves.size();
+  }
+
+  /**
+   * Build a solution by following the previous boards of a solved board.
+   *
+   * @param solved           Solved board
+   * @param optimal          Whether the solution is proven to have the fewest steps
+   * @param explored         Number of boards explored
+   * @param elapsedMillis    Elapsed time in milliseconds
+   * @return                 {@link Solution}
+   */
+  static Solution solved(final KlotskiBoard solved, final boolean optimal, final long explored,
+      final long elapsedMillis) {
+    Deque<KlotskiBoard> steps = new ArrayDeque<>();
+    KlotskiBoard current = solved;
+    while (current != null) {
+      steps.push(current);
+      current = current.getPrev();
+    }
+
+    List<KlotskiBoard> boards = new ArrayList<>(steps);
+    List<Move> moves = new ArrayList<>(boards.size());
+    for (int i = 1; i < boards.size(); i++) {
+      moves.add(Move.between(boards.get(i - 1), boards.get(i)));
+    }
+
+    return new Solution(Status.SOLVED, Collections.unmodifiableList(boards),
+        Collections.unmodifiableList(moves), optimal, explored, elapsedMillis);
+  }
+
+  /**
+   * Build a result without solution.
+   *
+   * @param status           Outcome of the search
+   * @param explored         Number of boards explored
+   * @param elapsedMillis    Elapsed time in milliseconds
+   * @return                 {@link Solution}
+   */
+  static Solution unsolved(final Status status, final long explored, final long elapsedMillis) {
+    return new Solution(status, Collections.emptyList(), Collections.emptyList(), false, explored,
+        elapsedMillis);
+  }
+
+}
@@ -0,0 +1,56 @@
+package org.shinthirty.klotski;
+
+import java.util.concurrent.TimeUnit;
+import org.shinthirty.klotski.models.KlotskiBoard;
+
+/**
+ * Search engine for klotski puzzles. An instance solves one puzzle at a time and may be reused
+ * for further puzzles; {@link #cancel()} may be called from any thread.
+ *
+ * @author shinthirty
+ */
+public interface Solver {
+
+  /**
+   * Solve a puzzle without time limit.
+   *
+   * @param puzzle    Parsed klotski puzzle
+   * @return          {@link Solution}
+   */
+  default Solution solve(final KlotskiBoard puzzle) {
+    return solve(puzzle, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Solve a puzzle, giving up once the timeout has elapsed.
+   *
+   * @param puzzle     Parsed klotski puzzle
+   * @param timeout    Maximum time to search
+   * @param unit       Unit of the timeout
+   * @return           {@link Solution}
+   */
+  default Solution solve(final KlotskiBoard puzzle, final long timeout, final TimeUnit unit) {
+    return solve(puzzle, timeout, unit, new Cancellation());
+  }
+
+  /**
+   * Solve a puzzle, giving up once the timeout has elapsed or the request is cancelled. A request
+   * cancelled before the search starts stops it right away.
+   *
+   * @param puzzle          Parsed klotski puzzle
+   * @param timeout         Maximum time to search
+   * @param unit            Unit of the timeout
+   * @param cancellation    Request to stop the search, from any thread
+   * @return                {@link Solution}
+   */
+  Solution solve(KlotskiBoard puzzle, long timeout, TimeUnit unit, Cancellation cancellation);
+
+  /**
+   * Ask the search in progress to stop. The search returns a {@link Solution.Status#CANCELLED}
+   * solution as soon as it notices the request. A request made while no search is in progress has
+   * no effect; a search which may not have started yet is cancelled through the
+   * {@link Cancellation} it is given. Interrupting the solving thread has the same effect.
+   */
+  void cancel();
+
+}
@@ -0,0 +1,188 @@
+package org.shinthirty.klotski;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size table of board hashes and the lowest number of steps they were reached with. Entries
+ * are grouped in buckets of {@link #WAYS} slots; when a bucket is full, a clock hand sweeps it,
+ * clearing reference bits, and evicts the first entry not referenced since the last sweep.
+ * Memory is allocated once and never grows.
+ *
+ * @author shinthirty
+ */
+class TranspositionTable {
+
+  /**
+   * Number of slots per bucket.
+   */
+  static final int WAYS = 4;
+
+  /**
+   * Approximate number of bytes per slot: key, value and reference bit.
+   */
+  static final int BYTES_PER_ENTRY = Long.BYTES + Integer.BYTES + 1;
+
+  /**
+   * Board hashes, 0 for empty slots.
+   */
+  private final long[] keys;
+
+  /**
+   * Lowest number of steps in the upper half, iteration in the lower half.
+   */
+  private final int[] values;
+
+  /**
+   * Reference bits of the clock.
+   */
+  private final boolean[] referenced;
+
+  /**
+   * Clock hand of every bucket.
+   */
+  private final byte[] hands;
+
+  /**
+   * Mask selecting a bucket from a hash.
+   */
+  private final int bucketMask;
+
+  /**
+   * Number of entries evicted.
+   */
+  private long evictions;
+
+  /**
+   * Constructor.
+   *
+   * @param capacity    Maximum number of entries, rounded down to a power of two of at least
+   *                    {@link #WAYS}
+   */
+  TranspositionTable(final int capacity) {
+    int buckets = Integer.highestOneBit(Math.max(capacity / WAYS, 1));
+    keys = new long[buckets * WAYS];
+    values = new int[buckets * WAYS];
+    referenced = new boolean[buckets * WAYS];
+    hands = new byte[buckets];
+    bucketMask = buckets - 1;
+  }
+
+  /**
+   * Get the maximum number of entries.
+   *
+   * @return    Capacity
+   */
+  int capacity() {
+    return keys.length;
+  }
+
+  /**
+   * Get the number of entries evicted so far.
+   *
+   * @return    Number of evictions
+   */
+  long getEvictions() {
+    return evictions;
+  }
+
+  /**
+   * Remove every entry.
+   */
+  void clear() {
+    Arrays.fill(keys, 0);
+    Arrays.fill(referenced, false);
+    evictions = 0;
+  }
+
+  /**
+   * Look a board up.
+   *
+   * @param hash    Board hash, not 0
+   * @return        Slot of the entry, or -1 if absent
+   */
+  int find(final long hash) {
+    int base = bucket(hash);
+    for (int i = base; i < base + WAYS; i++) {
+      if (keys[i] == hash) {
+        referenced[i] = true;
+        return i;
+      }
+    }
+
+    return -1;
+  }
+
+  /**
+   * Get the lowest number of steps stored in a slot.
+   *
+   * @param slot    Slot returned by {@link #find}
+   * @return        Number of steps
+   */
+  int steps(final int slot) {
+    return values[slot] >>> 16;
+  }
+
+  /**
+   * Get the iteration stored in a slot.
+   *
+   * @param slot    Slot returned by {@link #find}
+   * @return        Iteration
+   */
+  int iteration(final int slot) {
+    return values[slot] & 0xFFFF;
+  }
+
+  /**
+   * Record the number of steps a board was reached with in an iteration.
+   *
+   * @param slot         Slot returned by {@link #find}, or -1 to insert a new entry
+   * @param hash         Board hash, not 0
+   * @param steps        Number of steps
+   * @param iteration    Iteration
+   */
+  void store(final int slot, final long hash, final int steps, final int iteration) {
+    int target = slot >= 0 ? slot : victim(hash);
+    keys[target] = hash;
+    values[target] = steps << 16 | iteration & 0xFFFF;
+    referenced[target] = true;
+  }
+
+  /**
+   * Choose the slot of a new entry, evicting an old one with the clock if the bucket is full.
+   *
+   * @param hash    Board hash
+   * @return        Slot
+   */
+  private int victim(final long hash) {
+    int bucket = bucket(hash) / WAYS;
+    int base = bucket * WAYS;
+    for (int i = base; i < base + WAYS; i++) {
+      if (keys[i] == 0) {
+        return i;
+      }
+    }
+
+    while (true) {
+      int i = base + hands[bucket];
+      hands[bucket] = (byte) ((hands[bucket] + 1) % WAYS);
+      if (referenced[i]) {
+        referenced[i] = false;
+      } else {
+        evictions++;
+        return i;
+      }
+    }
+  }
+
+  /**
+   * First slot of the bucket of a hash.
+   *
+   * @param hash    Board hash
+   * @return        Slot
+   */
+  private int bucket(final long hash) {
+    long mixed = hash * 0x9E3779B97F4A7C15L;
+    return ((int) (mixed >>> 32) & bucketMask) * WAYS;
+  }
+
+}
@@ -14,16 +14,6 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor
 public class Bitboard {
 
-  /**
-   * Bitboard width.
-   */
-  public static int width;
-
-  /**
-   * Bitboard height.
-   */
-  public static int height;
-
   /**
    * Bitboard value.
    */
@@ -33,32 +23,34 @@ public class Bitboard {
   /**
    * Determine whether this bitboard overlaps another one.
    *
-   * @param other    {@link Bitboard} object
+   * @param other    Bitboard value
    * @return         {@link Boolean} true if overlap occurs
    */
-  boolean overlap(final Bitboard other) {
-    return (value & other.getValue()) != 0;
+  boolean overlap(final int other) {
+    return (value & other) != 0;
   }
 
   /**
    * Convert coordinates to bitboard value.
    *
-   * @param x    Horizontal coordinate
-   * @param y    Vertical coordinate
-   * @return     Bitboard value
+   * @param x        Horizontal coordinate
+   * @param y        Vertical coordinate
+   * @param width    Board width
+   * @return         Bitboard value
    */
-  static int toValue(final int x, final int y) {
-    return 1 << getIndex(x, y);
+  static int toValue(final int x, final int y, final int width) {
+    return 1 << getIndex(x, y, width);
   }
 
   /**
    * Convert coordinates to bitboard index.
    *
-   * @param x    Horizontal coordinate
-   * @param y    Vertical coordinate
-   * @return     Bitboard index
+   * @param x        Horizontal coordinate
+   * @param y        Vertical coordinate
+   * @param width    Board width
+   * @return         Bitboard index
    */
-  static int getIndex(final int x, final int y) {
+  static int getIndex(final int x, final int y, final int width) {
     return x + y * width;
   }
 
@@ -82,17 +74,19 @@ public class Bitboard {
    * 1. Top-left corner is at (x,y)
    * 2. Width and height of the area is defined by input parameter width and height
    *
-   * @param x        Horizontal position of the area
-   * @param y        Vertical position of the area
-   * @param width    Width of the area
-   * @param height   Height of the area
+   * @param x             Horizontal position of the area
+   * @param y             Vertical position of the area
+   * @param width         Width of the area
+   * @param height        Height of the area
+   * @param boardWidth    Board width
    * @return
    */
-  static Bitboard draw(final int x, final int y, final int width, final int height) {
+  static Bitboard draw(final int x, final int y, final int width, final int height,
+      final int boardWidth) {
     int value = 0;
     for (int i = x; i < x + width; i++) {
       for (int j = y; j < y + height; j++) {
-        value |= toValue(i, j);
+        value |= toValue(i, j, boardWidth);
       }
     }
 
@@ -65,12 +65,13 @@ public class Block extends Bitboard {
   /**
    * Attempt to move myself x units right and y units bottom.
    *
-   * @param x    Distance towards right
-   * @param y    Distance towards bottom
-   * @return     New block position represented by the bitboard value.
+   * @param x        Distance towards right
+   * @param y        Distance towards bottom
+   * @param width    Board width
+   * @return         New block position represented by the bitboard value.
    */
-  private int attemptMove(final int x, final int y) {
-    int shift = getIndex(x, y);
+  private int attemptMove(final int x, final int y, final int width) {
+    int shift = getIndex(x, y, width);
     if (shift >= 0) {
       return getValue() << shift;
     } else {
@@ -82,31 +83,33 @@ public class Block extends Bitboard {
    * Attempt to move myself towards a certain direction.
    *
    * @param direction    Direction
+   * @param width        Board width
    * @return             New block position represented by the bitboard value.
    */
-  int attemptMove(final Direction direction) {
-    return attemptMove(direction.x, direction.y);
+  int attemptMove(final Direction direction, final int width) {
+    return attemptMove(direction.x, direction.y, width);
   }
 
   /**
    * Get the eigenvalue of the block. One kind of block only has one eigenvalue which represents
    * its shape.
    *
-   * @return    {@link Integer}
+   * @param width    Board width
+   * @return         {@link Integer}
    */
-  int eigenvalue() {
-    return attemptMove(-positionX, -positionY);
+  int eigenvalue(final int width) {
+    return attemptMove(-positionX, -positionY, width);
   }
 
   /**
    * Move myself x units right and y units bottom.
    *
-   * @param x    Distance towards right
-   * @param y    Distance towards bottom
-   * @return     New block position represented by the bitboard value.
+   * @param x        Distance towards right
+   * @param y        Distance towards bottom
+   * @param width    Board width
    */
-  void move(final int x, final int y) {
-    int value = attemptMove(x, y);
+  void move(final int x, final int y, final int width) {
+    int value = attemptMove(x, y, width);
     positionX += x;
     positionY += y;
     setValue(value);
@@ -116,9 +119,10 @@ public class Block extends Bitboard {
    * Move myself towards a certain direction.
    *
    * @param direction    Direction
+   * @param width        Board width
    */
-  void move(final Direction direction) {
-    move(direction.x, direction.y);
+  void move(final Direction direction, final int width) {
+    move(direction.x, direction.y, width);
   }
 
   @Override
@@ -0,0 +1,127 @@
+package org.shinthirty.klotski.models;
+
+import lombok.Data;
+
+/**
+ * Geometry of a klotski puzzle: the size of the board, its edges and where the target block must
+ * go. Immutable and shared by every board of the puzzle, so boards of different puzzles can be
+ * searched at the same time.
+ *
+ * @author shinthirty
+ */
+@Data
+public final class Geometry {
+
+  /**
+   * Number of columns.
+   */
+  private final int width;
+
+  /**
+   * Number of rows.
+   */
+  private final int height;
+
+  /**
+   * Target block name.
+   */
+  private final String target;
+
+  /**
+   * Bitboard value of the target block once in place.
+   */
+  private final int targetValue;
+
+  /**
+   * Horizontal coordinate of the leftmost part of the target block once in place.
+   */
+  private final int targetX;
+
+  /**
+   * Vertical coordinate of the uppermost part of the target block once in place.
+   */
+  private final int targetY;
+
+  /**
+   * Top row.
+   */
+  private final int top;
+
+  /**
+   * Right column.
+   */
+  private final int right;
+
+  /**
+   * Bottom row.
+   */
+  private final int bottom;
+
+  /**
+   * Left column.
+   */
+  private final int left;
+
+  /**
+   * Constructor.
+   *
+   * @param width     Number of columns
+   * @param height    Number of rows
+   * @param target    Target block name
+   * @param goal      Target block once in place
+   */
+  Geometry(final int width, final int height, final String target, final Block goal) {
+    this.width = width;
+    this.height = height;
+    this.target = target;
+    targetValue = goal.getValue();
+    targetX = goal.getPositionX();
+    targetY = goal.getPositionY();
+    top = Bitboard.draw(0, 0, width, 1, width).getValue();
+    right = Bitboard.draw(width - 1, 0, 1, height, width).getValue();
+    bottom = Bitboard.draw(0, height - 1, width, 1, width).getValue();
+    left = Bitboard.draw(0, 0, 1, height, width).getValue();
+  }
+
+  /**
+   * Get the number of grids.
+   *
+   * @return    Number of grids
+   */
+  public int cells() {
+    return width * height;
+  }
+
+  /**
+   * Convert coordinates to bitboard index.
+   *
+   * @param x    Horizontal coordinate
+   * @param y    Vertical coordinate
+   * @return     Bitboard index
+   */
+  public int getIndex(final int x, final int y) {
+    return Bitboard.getIndex(x, y, width);
+  }
+
+  /**
+   * Convert coordinates to bitboard value.
+   *
+   * @param x    Horizontal coordinate
+   * @param y    Vertical coordinate
+   * @return     Bitboard value
+   */
+  public int toValue(final int x, final int y) {
+    return Bitboard.toValue(x, y, width);
+  }
+
+  /**
+   * Describe the geometry as its size and the target in place, e.g. {@code 4x5 B@417792}.
+   *
+   * @return    {@link String}
+   */
+  @Override
+  public String toString() {
+    return width + "x" + height + " " + target + "@" + targetValue;
+  }
+
+}
@@ -25,11 +25,12 @@ class Grid extends Bitboard {
   /**
    * Create a grid with coordinate (x, y).
    *
-   * @param x    Horizontal coordinate
-   * @param y    Vertical coordinate
+   * @param x        Horizontal coordinate
+   * @param y        Vertical coordinate
+   * @param width    Board width
    */
-  Grid(final int x, final int y) {
-    super(toValue(x, y));
+  Grid(final int x, final int y, final int width) {
+    super(toValue(x, y, width));
     positionX = x;
     positionY = y;
   }
@@ -0,0 +1,74 @@
+package org.shinthirty.klotski.models;
+
+import java.util.Map;
+
+/**
+ * Estimates of the distance of a board to the solved state.
+ *
+ * @author shinthirty
+ */
+public final class Heuristics {
+
+  /**
+   * Utility class.
+   */
+  private Heuristics() {
+  }
+
+  /**
+   * Manhattan distance between the target block and its target position.
+   *
+   * @param board    Klotski board
+   * @return         Distance in cells
+   */
+  public static int targetDistance(final KlotskiBoard board) {
+    Geometry geometry = board.getGeometry();
+    Block block = board.getBlocks().get(geometry.getTarget());
+    return Math.abs(block.getPositionX() - geometry.getTargetX())
+        + Math.abs(block.getPositionY() - geometry.getTargetY());
+  }
+
+  /**
+   * Number of blocks other than the target block covering part of the target position. Each of
+   * them has to move at least once before the puzzle is solved.
+   *
+   * @param board    Klotski board
+   * @return         Number of blocking blocks
+   */
+  public static int blockers(final KlotskiBoard board) {
+    Geometry geometry = board.getGeometry();
+    int goal = geometry.getTargetValue();
+    int count = 0;
+    for (Map.Entry<String, Block> entry : board.getBlocks().entrySet()) {
+      if ((entry.getValue().getValue() & goal) != 0
+          && !entry.getKey().equals(geometry.getTarget())) {
+        count++;
+      }
+    }
+
+    return count;
+  }
+
+  /**
+   * Admissible estimate of the number of steps left: the target block needs one step unless it
+   * is in place, and every blocking block needs one step of its own.
+   *
+   * @param board    Klotski board
+   * @return         Lower bound of the number of steps
+   */
+  public static int lowerBound(final KlotskiBoard board) {
+    return board.isSolved() ? 0 : 1 + blockers(board);
+  }
+
+  /**
+   * Score favouring boards where the target block is close to its position and little is in its
+   * way. Lower is better. Not admissible, intended to rank boards rather than prove optimality.
+   *
+   * @param board    Klotski board
+   * @return         Score
+   */
+  public static int score(final KlotskiBoard board) {
+    return 2 * targetDistance(board) + blockers(board);
+  }
+
+}
@@ -14,7 +14,10 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Setter;
 
 /**
  * Model for the Klotski board.
@@ -25,34 +28,15 @@ import lombok.Data;
 public class KlotskiBoard {
 
   /**
-   * Target block name.
+   * Largest number of grids a hash holds at 3 bits per grid, and so the largest board which can
+   * be rebuilt from its hash.
    */
-  public static String target;
+  public static final int MAX_HASHED_CELLS = 21;
 
   /**
-   * Target block state.
+   * Largest block index, bounded by the 3 bits per grid used by {@link #hash()}.
    */
-  public static Block targetBlock;
-
-  /**
-   * Top row.
-   */
-  public static Bitboard top;
-
-  /**
-   * Right column.
-   */
-  public static Bitboard right;
-
-  /**
-   * Bottom row.
-   */
-  public static Bitboard bottom;
-
-  /**
-   * Left column.
-   */
-  public static Bitboard left;
+  public static final int MAX_INDEX = 7;
 
   /**
    * Hash value for the Klotski board.
@@ -79,6 +63,12 @@ public class KlotskiBoard {
    */
   private KlotskiBoard prev;
 
+  /**
+   * Geometry of the puzzle this board belongs to, shared by all of its boards.
+   */
+  @Setter(AccessLevel.NONE)
+  private Geometry geometry;
+
   /**
    * Constructor.
    */
@@ -94,10 +84,11 @@ public class KlotskiBoard {
    * @param other    Another KlotskiBoard
    */
   private KlotskiBoard(final KlotskiBoard other) {
-    hash = 0;
+    hash = other.hash;
     blocks = new HashMap<>();
-    occupied = 0;
+    occupied = other.occupied;
     prev = other.prev;
+    geometry = other.geometry;
     Map<String, Block> otherBlocks = other.getBlocks();
     otherBlocks.forEach((name, block) -> blocks.put(name, new Block(block)));
   }
@@ -108,7 +99,7 @@ public class KlotskiBoard {
    * @return    {@link Boolean} indicates the state of puzzle
    */
   public boolean isSolved() {
-    return targetBlock.equals(blocks.get(target));
+    return blocks.get(geometry.getTarget()).getValue() == geometry.getTargetValue();
   }
 
   /**
@@ -121,24 +112,24 @@ public class KlotskiBoard {
   public boolean canMove(final String name, final Direction direction) {
     Block block = blocks.get(name);
 
-    if (direction == Direction.UP && block.overlap(top)) {
+    if (direction == Direction.UP && block.overlap(geometry.getTop())) {
       return false;
     }
 
-    if (direction == Direction.RIGHT && block.overlap(right)) {
+    if (direction == Direction.RIGHT && block.overlap(geometry.getRight())) {
       return false;
     }
 
-    if (direction == Direction.DOWN && block.overlap(bottom)) {
+    if (direction == Direction.DOWN && block.overlap(geometry.getBottom())) {
       return false;
     }
 
-    if (direction == Direction.LEFT && block.overlap(left)) {
+    if (direction == Direction.LEFT && block.overlap(geometry.getLeft())) {
       return false;
     }
 
     int occupiedWithoutCurrent = getOccupied() & ~block.getValue();
-    return (occupiedWithoutCurrent & block.attemptMove(direction)) == 0;
+    return (occupiedWithoutCurrent & block.attemptMove(direction, geometry.getWidth())) == 0;
   }
 
   /**
@@ -146,7 +137,7 @@ public class KlotskiBoard {
    *
    * @return    {@link Bitboard} value
    */
-  private int getOccupied() {
+  int getOccupied() {
     if (occupied == 0) {
       occupied = Bitboard.combine(blocks.values());
     }
@@ -163,11 +154,67 @@ public class KlotskiBoard {
    */
   public KlotskiBoard move(final String name, final Direction direction) {
     KlotskiBoard after = new KlotskiBoard(this);
-    after.getBlocks().get(name).move(direction);
+    after.shift(name, direction.x, direction.y);
     after.setPrev(this);
     return after;
   }
 
+  /**
+   * Create a copy of this Klotski board, linked to the same previous board.
+   *
+   * @return    {@link KlotskiBoard}
+   */
+  public KlotskiBoard copy() {
+    return new KlotskiBoard(this);
+  }
+
+  /**
+   * Move a block x units right and y units bottom in place, without checking that the move is
+   * legal. The hash and the occupied grids are updated incrementally, which lets a depth-first
+   * search make and undo moves on a single board.
+   *
+   * @param name    Name of the block
+   * @param x       Distance towards right
+   * @param y       Distance towards bottom
+   */
+  public void shift(final String name, final int x, final int y) {
+    Block block = blocks.get(name);
+    int before = block.getValue();
+    long current = hash();
+    block.move(x, y, geometry.getWidth());
+    int after = block.getValue();
+
+    hash = current & ~spread(before, (byte) 7) | spread(after, block.getIndex());
+    if (occupied != 0) {
+      occupied = occupied & ~before | after;
+    }
+    grids = null;
+  }
+
+  /**
+   * Spread a block index over the grids of a bitboard value, in the layout used by
+   * {@link #hash()}. Grids shifted out of the hash by {@link #hash()}, the first ones of boards of
+   * more than {@link #MAX_HASHED_CELLS} grids, are left out.
+   *
+   * @param value    Bitboard value
+   * @param index    Block index
+   * @return         Hash bits of the grids
+   */
+  private long spread(final int value, final byte index) {
+    int last = geometry.cells() - 1;
+    long bits = 0;
+    int remaining = value;
+    while (remaining != 0) {
+      int shift = 3 * (last - Integer.numberOfTrailingZeros(remaining));
+      if (shift < Long.SIZE) {
+        bits |= (long) index << shift;
+      }
+      remaining &= remaining - 1;
+    }
+
+    return bits;
+  }
+
   /**
    * Generate board configuration by grids.
    *
@@ -175,13 +222,13 @@ public class KlotskiBoard {
    */
   private String[] getGrids() {
     if (grids == null) {
-      grids = new String[Bitboard.width * Bitboard.height];
+      grids = new String[geometry.cells()];
 
       blocks.forEach((name, block) -> {
-        for (int y = 0; y < Bitboard.height; y++) {
-          for (int x = 0; x < Bitboard.width; x++) {
-            if ((block.getValue() & Bitboard.toValue(x, y)) != 0) {
-              grids[Bitboard.getIndex(x, y)] = name;
+        for (int y = 0; y < geometry.getHeight(); y++) {
+          for (int x = 0; x < geometry.getWidth(); x++) {
+            if ((block.getValue() & geometry.toValue(x, y)) != 0) {
+              grids[geometry.getIndex(x, y)] = name;
             }
           }
         }
@@ -197,9 +244,8 @@ public class KlotskiBoard {
    * @return    {@link Long}
    */
   public long hash() {
-    String[] grids = getGrids();
-
     if (hash == 0) {
+      String[] grids = getGrids();
       for (String grid : grids) {
         byte index = grid != null ? blocks.get(grid).getIndex() : 0;
         hash = hash << 3 | index;
@@ -209,6 +255,101 @@ public class KlotskiBoard {
     return hash;
   }
 
+  /**
+   * Check that the hash of a board holds all of its grids, so that the board can be rebuilt from
+   * its hash.
+   *
+   * @throws IllegalArgumentException    If the board has more than {@link #MAX_HASHED_CELLS}
+   *                                     grids
+   */
+  public void checkHashedCells() {
+    if (geometry.cells() > MAX_HASHED_CELLS) {
+      throw new IllegalArgumentException("Boards of more than " + MAX_HASHED_CELLS
+          + " grids cannot be rebuilt from their hash, this one has " + geometry.cells());
+    }
+  }
+
+  /**
+   * Describe the layout of the board: its geometry, the target and the shape of every block.
+   * Boards with the same layout differ only by the positions of their blocks, so their hashes can
+   * be compared.
+   *
+   * @return    {@link String}
+   */
+  public String layout() {
+    StringBuilder sb = new StringBuilder(geometry.toString());
+    new TreeMap<>(blocks).forEach((name, block) -> sb.append(' ').append(name).append('=')
+        .append(block.getIndex()).append(':').append(block.eigenvalue(geometry.getWidth())));
+    return sb.toString();
+  }
+
+  /**
+   * Rebuild a board from its hash. Blocks keep their name where this board has a block of the same
+   * shape at the same position, so that decoding the boards of a path one after the other, each
+   * relative to the previous one, names the moved block consistently.
+   *
+   * @param key    Hash of the board, as returned by {@link #hash()}
+   * @return       {@link KlotskiBoard}, not linked to any previous board
+   * @throws IllegalArgumentException    If the board has more than {@link #MAX_HASHED_CELLS}
+   *                                     grids, which its hash does not hold
+   */
+  public KlotskiBoard decode(final long key) {
+    checkHashedCells();
+
+    Map<Byte, Block> shapes = new HashMap<>();
+    blocks.values().forEach(block -> shapes.put(block.getIndex(), block));
+
+    int width = geometry.getWidth();
+    int last = geometry.cells() - 1;
+    List<Block> placements = new ArrayList<>();
+    int covered = 0;
+    for (int i = 0; i <= last; i++) {
+      byte index = (byte) (key >>> 3 * (last - i) & 7);
+      if (index == 0 || (covered & 1 << i) != 0) {
+        continue;
+      }
+
+      // The first grid of the shape in scan order lands on grid i.
+      Block shape = shapes.get(index);
+      int eigenvalue = shape.eigenvalue(width);
+      int first = Integer.numberOfTrailingZeros(eigenvalue);
+      Block placement = new Block();
+      placement.setIndex(index);
+      placement.setValue(eigenvalue << i - first);
+      placement.setPositionX(i % width - first % width);
+      placement.setPositionY(i / width - first / width);
+      placements.add(placement);
+      covered |= placement.getValue();
+    }
+
+    KlotskiBoard board = new KlotskiBoard(this);
+    board.prev = null;
+    List<String> moved = new ArrayList<>();
+    blocks.forEach((name, block) -> {
+      if (!placements.removeIf(placement -> placement.getValue() == block.getValue()
+          && placement.getIndex() == block.getIndex())) {
+        moved.add(name);
+      }
+    });
+
+    for (String name : moved) {
+      Block block = board.getBlocks().get(name);
+      for (int i = 0; i < placements.size(); i++) {
+        Block placement = placements.get(i);
+        if (placement.getIndex() == block.getIndex()) {
+          block.move(placement.getPositionX() - block.getPositionX(),
+              placement.getPositionY() - block.getPositionY(), width);
+          placements.remove(i);
+          break;
+        }
+      }
+    }
+
+    board.hash = key;
+    board.occupied = covered;
+    return board;
+  }
+
   /**
    * Parse the following string to a {@link KlotskiBoard}
    *
@@ -241,41 +382,38 @@ public class KlotskiBoard {
     try (BufferedReader br = new BufferedReader(new InputStreamReader(is))) {
       String line = br.readLine();
       String[] size = line.split(" ");
-      Bitboard.width = Integer.valueOf(size[0]);
-      Bitboard.height = Integer.valueOf(size[1]);
-
-      top = Bitboard.draw(0, 0, Bitboard.width, 1);
-      right = Bitboard.draw(Bitboard.width - 1, 0, 1, Bitboard.height);
-      bottom = Bitboard.draw(0, Bitboard.height - 1, Bitboard.width, 1);
-      left = Bitboard.draw(0, 0, 1, Bitboard.height);
+      int width = Integer.valueOf(size[0]);
+      int height = Integer.valueOf(size[1]);
 
-      for (int i = 0; i < Bitboard.height; i++) {
+      for (int i = 0; i < height; i++) {
         line = br.readLine();
         String[] parts = line.split(" ");
-        for (int j = 0; j < Bitboard.width; j++) {
+        for (int j = 0; j < width; j++) {
           String name = parts[j];
           if (!".".equals(name)) {
             if (!blocks.containsKey(name)) {
               blocks.put(name, new Block());
             }
 
-            Grid grid = new Grid(j, i);
+            Grid grid = new Grid(j, i, width);
             blocks.get(name).addGrid(grid);
           }
         }
       }
 
-      klotskiBoard.initializeBlockIndex();
-
-      target = br.readLine();
+      String target = br.readLine();
       line = br.readLine();
       String[] targetPosition = line.split(" ");
       int targetPositionX = Integer.valueOf(targetPosition[0]);
       int targetPositionY = Integer.valueOf(targetPosition[1]);
 
-      targetBlock = new Block(blocks.get(target));
+      klotskiBoard.initializeBlockIndex(target, width);
+
+      Block targetBlock = new Block(blocks.get(target));
       targetBlock.move(targetPositionX - targetBlock.getPositionX(),
-          targetPositionY - targetBlock.getPositionY());
+          targetPositionY - targetBlock.getPositionY(), width);
+
+      klotskiBoard.geometry = new Geometry(width, height, target, targetBlock);
     } catch (IOException ex) {
       ex.printStackTrace();
     }
@@ -284,12 +422,22 @@ public class KlotskiBoard {
   }
 
   /**
-   * Initialize block indexes.
+   * Initialize block indexes. Blocks of the same shape share an index, except the target block
+   * which always has an index of its own so that it can be told apart in a hash.
+   *
+   * @param target    Target block name
+   * @param width     Board width
+   * @throws IllegalArgumentException    If there are more indexes than the 3 bits per grid used by
+   *                                     {@link #hash()} can hold
    */
-  private void initializeBlockIndex() {
+  private void initializeBlockIndex(final String target, final int width) {
     Map<Integer, List<Block>> blockEigenvalues = new HashMap<>();
     blocks.forEach((name, block) -> {
-      int eigenvalue = block.eigenvalue();
+      if (name.equals(target)) {
+        return;
+      }
+
+      int eigenvalue = block.eigenvalue(width);
       if (!blockEigenvalues.containsKey(eigenvalue)) {
         blockEigenvalues.put(eigenvalue, new ArrayList<>());
       }
@@ -297,6 +445,11 @@ public class KlotskiBoard {
       blockEigenvalues.get(eigenvalue).add(block);
     });
 
+    if (blockEigenvalues.size() + 1 > MAX_INDEX) {
+      throw new IllegalArgumentException("At most " + MAX_INDEX
+          + " block shapes are supported, the target counting as a shape of its own");
+    }
+
     byte index = 1;
     for (List<Block> blockList : blockEigenvalues.values()) {
       for (Block block : blockList) {
@@ -304,6 +457,8 @@ public class KlotskiBoard {
       }
       index++;
     }
+
+    blocks.get(target).setIndex(index);
   }
 
   @Override
@@ -311,9 +466,9 @@ public class KlotskiBoard {
     String[] grids = getGrids();
     ByteArrayOutputStream os = new ByteArrayOutputStream();
     try (PrintWriter pw = new PrintWriter(new BufferedWriter(new OutputStreamWriter(os)))) {
-      for (int y = 0; y < Bitboard.height; y++) {
-        for (int x = 0; x < Bitboard.width; x++) {
-          String element = grids[Bitboard.getIndex(x, y)];
+      for (int y = 0; y < geometry.getHeight(); y++) {
+        for (int x = 0; x < geometry.getWidth(); x++) {
+          String element = grids[geometry.getIndex(x, y)];
           if (element == null) {
             element = ".";
           }
@@ -0,0 +1,59 @@
+package org.shinthirty.klotski.models;
+
+import java.util.Map;
+import lombok.Data;
+
+/**
+ * One step of a solution: a block sliding from one position to another, possibly around corners.
+ *
+ * @author shinthirty
+ */
+@Data
+public class Move {
+
+  /**
+   * Name of the moved block.
+   */
+  private final String name;
+
+  /**
+   * Horizontal coordinate of the leftmost part of the block before the move.
+   */
+  private final int fromX;
+
+  /**
+   * Vertical coordinate of the uppermost part of the block before the move.
+   */
+  private final int fromY;
+
+  /**
+   * Horizontal coordinate of the leftmost part of the block after the move.
+   */
+  private final int toX;
+
+  /**
+   * Vertical coordinate of the uppermost part of the block after the move.
+   */
+  private final int toY;
+
+  /**
+   * Find the move leading from one board to the next.
+   *
+   * @param before    Board before the move
+   * @param after     Board after the move
+   * @return          {@link Move}, or null if no block has moved
+   */
+  public static Move between(final KlotskiBoard before, final KlotskiBoard after) {
+    for (Map.Entry<String, Block> entry : before.getBlocks().entrySet()) {
+      Block from = entry.getValue();
+      Block to = after.getBlocks().get(entry.getKey());
+      if (from.getValue() != to.getValue()) {
+        return new Move(entry.getKey(), from.getPositionX(), from.getPositionY(),
+            to.getPositionX(), to.getPositionY());
+      }
+    }
+
+    return null;
+  }
+
+}
@@ -0,0 +1,216 @@
+package org.shinthirty.klotski.models;
+
+import java.util.Arrays;
+
+/**
+ * Packed move generator. Block values are laid out in a flat array and the edge and occupancy
+ * checks of every block are evaluated for one direction at a time in a branch-free loop, producing
+ * a bitmask of legal moves instead of one {@link KlotskiBoard#canMove} call per block and
+ * direction.
+ *
+ * <p>Bit {@code block * 4 + direction.ordinal()} of the mask is set if the move is legal, so at
+ * most {@link #MAX_BLOCKS} blocks are supported. The generator only holds read-only tables of the
+ * puzzle geometry and can be shared between threads.
+ *
+ * @author shinthirty
+ */
+public class MoveGenerator {
+
+  /**
+   * Maximum number of blocks representable by the move mask.
+   */
+  public static final int MAX_BLOCKS = Long.SIZE / 4;
+
+  /**
+   * Directions in mask order.
+   */
+  private static final Direction[] DIRECTIONS = Direction.values();
+
+  /**
+   * Names of the blocks in mask order.
+   */
+  private final String[] names;
+
+  /**
+   * Edge of the board a block must not touch to move towards each direction.
+   */
+  private final int[] edges;
+
+  /**
+   * Bitboard shift of a unit move towards each direction.
+   */
+  private final int[] shifts;
+
+  /**
+   * Constructor.
+   *
+   * @param board    Any board of the puzzle, used to fix the block order
+   */
+  public MoveGenerator(final KlotskiBoard board) {
+    if (!supports(board)) {
+      throw new IllegalArgumentException("At most " + MAX_BLOCKS + " blocks are supported");
+    }
+
+    Geometry geometry = board.getGeometry();
+    names = board.getBlocks().keySet().toArray(new String[0]);
+    edges = new int[] { geometry.getTop(), geometry.getRight(), geometry.getBottom(),
+        geometry.getLeft() };
+    shifts = new int[DIRECTIONS.length];
+    for (Direction direction : DIRECTIONS) {
+      shifts[direction.ordinal()] = geometry.getIndex(direction.x, direction.y);
+    }
+  }
+
+  /**
+   * Determine whether a board can be handled by the packed generator.
+   *
+   * @param board    Klotski board
+   * @return         {@link Boolean} true if the board has few enough blocks
+   */
+  public static boolean supports(final KlotskiBoard board) {
+    return board.getBlocks().size() <= MAX_BLOCKS;
+  }
+
+  /**
+   * Determine whether the generator was built for the geometry of a board, that is the same
+   * block names and the same board size.
+   *
+   * @param board    Klotski board
+   * @return         {@link Boolean} true if the generator can be used for the board
+   */
+  public boolean matches(final KlotskiBoard board) {
+    Geometry geometry = board.getGeometry();
+    return edges[0] == geometry.getTop() && edges[1] == geometry.getRight()
+        && Arrays.equals(names, board.getBlocks().keySet().toArray(new String[0]));
+  }
+
+  /**
+   * Get the number of blocks.
+   *
+   * @return    Number of blocks
+   */
+  public int size() {
+    return names.length;
+  }
+
+  /**
+   * Get the name of a block.
+   *
+   * @param block    Index of the block in mask order
+   * @return         Name of the block
+   */
+  public String getName(final int block) {
+    return names[block];
+  }
+
+  /**
+   * Get the direction of a move.
+   *
+   * @param move    Index of the bit in the move mask
+   * @return        {@link Direction}
+   */
+  public static Direction getDirection(final int move) {
+    return DIRECTIONS[move & 3];
+  }
+
+  /**
+   * Get the block of a move.
+   *
+   * @param move    Index of the bit in the move mask
+   * @return        Index of the block in mask order
+   */
+  public static int getBlock(final int move) {
+    return move >>> 2;
+  }
+
+  /**
+   * Compute the legal moves of every block.
+   *
+   * @param board    Klotski board
+   * @return         Move mask
+   */
+  public long legalMoves(final KlotskiBoard board) {
+    int[] values = new int[names.length];
+    for (int i = 0; i < names.length; i++) {
+      values[i] = board.getBlocks().get(names[i]).getValue();
+    }
+
+    int occupied = board.getOccupied();
+    long mask = 0;
+    for (int d = 0; d < DIRECTIONS.length; d++) {
+      int edge = edges[d];
+      int shift = shifts[d];
+      for (int i = 0; i < values.length; i++) {
+        int value = values[i];
+        int blocked = (value & edge) | (occupied & ~value & shiftValue(value, shift));
+        mask |= (long) ((blocked | -blocked) >>> 31 ^ 1) << (i << 2 | d);
+      }
+    }
+
+    return mask;
+  }
+
+  /**
+   * Find every position one block can slide to, any distance and around corners, while the other
+   * blocks stay in place.
+   *
+   * @param board     Klotski board
+   * @param block     Index of the block in mask order
+   * @param buffer    Receives (value, x offset, y offset) triples, the first one being the current
+   *                  position; needs room for 3 entries per grid of the board
+   * @return          Number of reachable positions, stored after the current position
+   */
+  public int slides(final KlotskiBoard board, final int block, final int[] buffer) {
+    int value = board.getBlocks().get(names[block]).getValue();
+    int occupied = board.getOccupied() & ~value;
+
+    buffer[0] = value;
+    buffer[1] = 0;
+    buffer[2] = 0;
+    int size = 1;
+    for (int head = 0; head < size; head++) {
+      int current = buffer[3 * head];
+      for (int d = 0; d < DIRECTIONS.length; d++) {
+        int next = shiftValue(current, shifts[d]);
+        if ((current & edges[d]) == 0 && (next & occupied) == 0 && !contains(buffer, size, next)) {
+          buffer[3 * size] = next;
+          buffer[3 * size + 1] = buffer[3 * head + 1] + DIRECTIONS[d].x;
+          buffer[3 * size + 2] = buffer[3 * head + 2] + DIRECTIONS[d].y;
+          size++;
+        }
+      }
+    }
+
+    return size - 1;
+  }
+
+  /**
+   * Determine whether a position is among the first triples of a buffer.
+   *
+   * @param buffer    (value, x offset, y offset) triples
+   * @param size      Number of triples
+   * @param value     Bitboard value of the position
+   * @return          {@link Boolean} true if found
+   */
+  private static boolean contains(final int[] buffer, final int size, final int value) {
+    for (int i = 0; i < size; i++) {
+      if (buffer[3 * i] == value) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Shift a bitboard value.
+   *
+   * @param value    Bitboard value
+   * @param shift    Positive to shift towards higher indexes, negative otherwise
+   * @return         Shifted value
+   */
+  private static int shiftValue(final int value, final int shift) {
+    return shift >= 0 ? value << shift : value >>> -shift;
+  }
+
+}
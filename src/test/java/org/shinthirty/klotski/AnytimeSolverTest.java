@@ -0,0 +1,92 @@
+package org.shinthirty.klotski;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.shinthirty.klotski.models.KlotskiBoard;
+
+/**
+ * Check the solutions {@link AnytimeSolver} publishes and returns on the puzzles in
+ * {@code testData}.
+ *
+ * @author shinthirty
+ */
+public class AnytimeSolverTest {
+
+  /**
+   * Every published solution is shorter than the one before, and the result is proven optimal
+   * with the number of steps of breadth-first search.
+   *
+   * @throws IOException    If a puzzle cannot be read
+   */
+  @Test
+  public void publishesShorterSolutionsUntilOptimal() throws IOException {
+    Solver bfs = new KlotskiSolver();
+    List<Solution> published = new ArrayList<>();
+    Solver anytime = new AnytimeSolver(published::add);
+    for (File puzzle : TestPuzzles.list()) {
+      KlotskiBoard board = TestPuzzles.parse(puzzle);
+      published.clear();
+      Solution solution = anytime.solve(board);
+
+      assertTrue(puzzle.getName() + " is not solved", solution.isSolved());
+      assertTrue(puzzle.getName() + " is not optimal", solution.isOptimal());
+      assertEquals(puzzle.getName(), bfs.solve(board).getSteps(), solution.getSteps());
+      assertFalse(puzzle.getName(), published.isEmpty());
+      for (int i = 1; i < published.size(); i++) {
+        assertTrue(puzzle.getName(),
+            published.get(i).getSteps() < published.get(i - 1).getSteps());
+      }
+      assertEquals(puzzle.getName(), solution.getSteps(),
+          published.get(published.size() - 1).getSteps());
+    }
+  }
+
+  /**
+   * A solved position is published once, as the optimal solution of no step.
+   *
+   * @throws IOException    If the puzzle cannot be read
+   */
+  @Test
+  public void publishesSolvedStartOnce() throws IOException {
+    List<KlotskiBoard> boards = new KlotskiSolver().solve(TestPuzzles.parse("hackerrank.txt"))
+        .getBoards();
+    KlotskiBoard solved = boards.get(boards.size() - 1).copy();
+    solved.setPrev(null);
+
+    List<Solution> published = new ArrayList<>();
+    Solution solution = new AnytimeSolver(published::add).solve(solved);
+    assertEquals(1, published.size());
+    assertEquals(0, published.get(0).getSteps());
+    assertTrue(solution.isOptimal());
+    assertEquals(0, solution.getSteps());
+  }
+
+  /**
+   * A search stopped once a first solution is known returns it, not proven optimal.
+   *
+   * @throws IOException    If the puzzle cannot be read
+   */
+  @Test
+  public void stoppedSearchIsNotOptimal() throws IOException {
+    List<Solution> published = new ArrayList<>();
+    AnytimeSolver[] anytime = new AnytimeSolver[1];
+    anytime[0] = new AnytimeSolver(improved -> {
+      published.add(improved);
+      anytime[0].cancel();
+    });
+
+    Solution solution = anytime[0].solve(TestPuzzles.parse("hard.txt"));
+    assertTrue(solution.isSolved());
+    assertFalse(solution.isOptimal());
+    assertEquals(1, published.size());
+    assertEquals(published.get(0).getSteps(), solution.getSteps());
+  }
+
+}
@@ -0,0 +1,110 @@
+package org.shinthirty.klotski;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.shinthirty.klotski.models.Heuristics;
+import org.shinthirty.klotski.models.KlotskiBoard;
+
+/**
+ * Check the solutions of {@link BeamSearchSolver} on the puzzles in {@code testData}.
+ *
+ * @author shinthirty
+ */
+public class BeamSearchSolverTest {
+
+  /**
+   * Beam widths run in parallel.
+   */
+  private static final int[] WIDTHS = { 10, 100, 1000 };
+
+  /**
+   * Every solution goes from the puzzle to a solved board one move at a time, and is no shorter
+   * than the one of breadth-first search.
+   *
+   * @throws IOException    If a puzzle cannot be read
+   */
+  @Test
+  public void findsValidSolutions() throws IOException {
+    Solver bfs = new KlotskiSolver();
+    for (File puzzle : TestPuzzles.list()) {
+      KlotskiBoard board = TestPuzzles.parse(puzzle);
+      Solution solution = new BeamSearchSolver(1000).solve(board);
+
+      assertTrue(puzzle.getName() + " is not solved", solution.isSolved());
+      assertTrue(puzzle.getName(), solution.getSteps() >= bfs.solve(board).getSteps());
+      assertValid(puzzle.getName(), board, solution);
+    }
+  }
+
+  /**
+   * The parallel search returns the shortest solution of its widths searched one at a time.
+   *
+   * @throws IOException    If a puzzle cannot be read
+   */
+  @Test
+  public void solveParallelReturnsTheShortest() throws IOException {
+    for (File puzzle : TestPuzzles.list()) {
+      KlotskiBoard board = TestPuzzles.parse(puzzle);
+      int shortest = Integer.MAX_VALUE;
+      for (int width : WIDTHS) {
+        Solution solution = new BeamSearchSolver(width).solve(board);
+        if (solution.isSolved()) {
+          shortest = Math.min(shortest, solution.getSteps());
+        }
+      }
+
+      Solution solution = BeamSearchSolver.solveParallel(board, WIDTHS, Heuristics::score,
+          Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+      assertTrue(puzzle.getName() + " is not solved", solution.isSolved());
+      assertEquals(puzzle.getName(), shortest, solution.getSteps());
+      assertValid(puzzle.getName(), board, solution);
+    }
+  }
+
+  /**
+   * A solved board is found even when the scoring keeps it out of the beam.
+   *
+   * @throws IOException    If the puzzle cannot be read
+   */
+  @Test
+  public void keepsSolvedBoardScoredOutOfTheBeam() throws IOException {
+    List<KlotskiBoard> boards = new KlotskiSolver().solve(TestPuzzles.parse("hackerrank.txt"))
+        .getBoards();
+    KlotskiBoard start = boards.get(boards.size() - 2).copy();
+    start.setPrev(null);
+
+    Solution solution = new BeamSearchSolver(1, BeamSearchSolver.DEFAULT_WINDOW,
+        board -> board.isSolved() ? 1 : 0, BeamSearchSolver.DEFAULT_MAX_DEPTH).solve(start);
+    assertTrue(solution.isSolved());
+    assertEquals(1, solution.getSteps());
+  }
+
+  /**
+   * Check that a solution starts from the puzzle, makes one move per step and ends solved.
+   *
+   * @param name        Puzzle name
+   * @param puzzle      Parsed klotski puzzle
+   * @param solution    Solution of the puzzle
+   */
+  private static void assertValid(final String name, final KlotskiBoard puzzle,
+      final Solution solution) {
+    List<KlotskiBoard> boards = solution.getBoards();
+    assertEquals(name, puzzle.hash(), boards.get(0).hash());
+    assertEquals(name, solution.getSteps(), boards.size() - 1);
+
+    Expander expander = Expander.of(puzzle, true, null);
+    for (int i = 1; i < boards.size(); i++) {
+      long hash = boards.get(i).hash();
+      assertEquals(name + " step " + i, 1,
+          expander.nextBoards(boards.get(i - 1), key -> key == hash).size());
+    }
+    assertTrue(name, boards.get(boards.size() - 1).isSolved());
+  }
+
+}
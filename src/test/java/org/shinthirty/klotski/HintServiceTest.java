@@ -0,0 +1,156 @@
+package org.shinthirty.klotski;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.shinthirty.klotski.models.KlotskiBoard;
+
+/**
+ * Follow the hints of {@link HintService} on every puzzle in {@code testData}, checking their
+ * distances against breadth-first search.
+ *
+ * @author shinthirty
+ */
+public class HintServiceTest {
+
+  /**
+   * Number of hints followed between two moves off the hinted solution.
+   */
+  private static final int DETOUR_EVERY = 7;
+
+  /**
+   * Puzzles, sorted by file name.
+   */
+  private static File[] puzzles;
+
+  /**
+   * List the puzzles.
+   */
+  @BeforeClass
+  public static void load() {
+    puzzles = TestPuzzles.list();
+  }
+
+  /**
+   * Following the hints, with a move off the hinted solution now and then, reaches the goal one
+   * step per hint, and every position off the solution gets the distance of a fresh search.
+   *
+   * @throws IOException    If a puzzle cannot be read
+   */
+  @Test
+  public void followsOptimalSolutions() throws IOException {
+    Solver solver = new KlotskiSolver();
+    for (File puzzle : puzzles) {
+      HintService hints = new HintService(1, 1000, Long.MAX_VALUE);
+      KlotskiBoard position = TestPuzzles.parse(puzzle);
+      Expander expander = Expander.of(position, true, null);
+      Hint hint = hints.hint("player", position);
+      assertEquals(puzzle.getName(), solver.solve(position).getSteps(), hint.getDistance());
+      assertTrue(puzzle.getName(), hint.isOptimal());
+
+      for (int played = 1; hint.getDistance() > 0; played++) {
+        long hinted = hint.getNext().hash();
+        List<KlotskiBoard> detours = expander.nextBoards(position, key -> key != hinted);
+        if (played % DETOUR_EVERY == 0 && !detours.isEmpty()) {
+          position = detours.get(0);
+          hint = hints.hint("player", position);
+          KlotskiBoard start = position.copy();
+          start.setPrev(null);
+          assertEquals(puzzle.getName(), solver.solve(start).getSteps(), hint.getDistance());
+        } else {
+          int distance = hint.getDistance();
+          position = hint.getNext();
+          hint = hints.hint("player", position);
+          assertTrue(puzzle.getName(), hint.isCached());
+          assertEquals(puzzle.getName(), distance - 1, hint.getDistance());
+        }
+      }
+
+      assertTrue(puzzle.getName(), position.isSolved());
+      assertNull(puzzle.getName(), hint.getNext());
+    }
+  }
+
+  /**
+   * A session refuses positions of another layout until closed.
+   *
+   * @throws IOException    If a puzzle cannot be read
+   */
+  @Test
+  public void refusesAnotherLayout() throws IOException {
+    HintService hints = new HintService(1, 1000, Long.MAX_VALUE);
+    hints.hint("player", TestPuzzles.parse(puzzles[0]));
+
+    KlotskiBoard other = TestPuzzles.parse(puzzles[1]);
+    try {
+      hints.hint("player", other);
+      throw new AssertionError("A position of another layout was answered");
+    } catch (IllegalStateException e) {
+      assertTrue(e.getMessage().startsWith("Session player answers positions of"));
+    }
+
+    hints.close("player");
+    assertTrue(hints.hint("player", other).isSolvable());
+  }
+
+  /**
+   * Sessions of different puzzles played in turns each follow their own puzzle to the goal.
+   *
+   * @throws IOException    If a puzzle cannot be read
+   */
+  @Test
+  public void interleavesSessionsOfDifferentPuzzles() throws IOException {
+    HintService hints = new HintService(puzzles.length, 1000, Long.MAX_VALUE);
+    KlotskiBoard[] positions = new KlotskiBoard[puzzles.length];
+    Hint[] answers = new Hint[puzzles.length];
+    for (int i = 0; i < puzzles.length; i++) {
+      positions[i] = TestPuzzles.parse(puzzles[i]);
+      answers[i] = hints.hint(puzzles[i].getName(), positions[i]);
+    }
+
+    for (boolean playing = true; playing; ) {
+      playing = false;
+      for (int i = 0; i < puzzles.length; i++) {
+        if (answers[i].getDistance() > 0) {
+          int distance = answers[i].getDistance();
+          positions[i] = answers[i].getNext();
+          answers[i] = hints.hint(puzzles[i].getName(), positions[i]);
+          assertTrue(puzzles[i].getName(), answers[i].isCached());
+          assertEquals(puzzles[i].getName(), distance - 1, answers[i].getDistance());
+          playing = true;
+        }
+      }
+    }
+
+    for (int i = 0; i < puzzles.length; i++) {
+      assertTrue(puzzles[i].getName(), positions[i].isSolved());
+    }
+    assertEquals(puzzles.length, hints.getSessionCount());
+  }
+
+  /**
+   * A search which reaches its limit gives up without keeping anything.
+   *
+   * @throws IOException    If the puzzle cannot be read
+   */
+  @Test
+  public void givesUpAtTheSearchLimit() throws IOException {
+    HintService hints = new HintService(1, 1000, 100, Long.MAX_VALUE);
+    KlotskiBoard puzzle = TestPuzzles.parse("hard.txt");
+    for (int i = 0; i < 2; i++) {
+      Hint hint = hints.hint("player", puzzle);
+      assertFalse(hint.isOptimal());
+      assertFalse(hint.isCached());
+      assertEquals(Hint.UNKNOWN, hint.getDistance());
+      assertNull(hint.getMove());
+    }
+  }
+
+}
@@ -0,0 +1,39 @@
+package org.shinthirty.klotski;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import org.junit.Test;
+import org.shinthirty.klotski.models.KlotskiBoard;
+
+/**
+ * Check that iterative-deepening A* finds solutions as short as breadth-first search on every
+ * puzzle in {@code testData}.
+ *
+ * @author shinthirty
+ */
+public class IdaStarSolverTest {
+
+  /**
+   * Every puzzle is solved with the number of steps of breadth-first search.
+   *
+   * @throws IOException    If a puzzle cannot be read
+   */
+  @Test
+  public void matchesBreadthFirstSearch() throws IOException {
+    Solver bfs = new KlotskiSolver();
+    Solver ida = new IdaStarSolver();
+    for (File puzzle : TestPuzzles.list()) {
+      KlotskiBoard board = TestPuzzles.parse(puzzle);
+      Solution expected = bfs.solve(board);
+      Solution actual = ida.solve(board);
+
+      assertTrue(puzzle.getName() + " is not solved", actual.isSolved());
+      assertTrue(puzzle.getName() + " is not optimal", actual.isOptimal());
+      assertEquals(puzzle.getName(), expected.getSteps(), actual.getSteps());
+    }
+  }
+
+}
@@ -0,0 +1,70 @@
+package org.shinthirty.klotski;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.shinthirty.klotski.models.Direction;
+import org.shinthirty.klotski.models.KlotskiBoard;
+
+/**
+ * Check the hash kept up to date by moves against the hash computed from the grids.
+ *
+ * @author shinthirty
+ */
+public class KlotskiBoardTest {
+
+  /**
+   * Board of 25 grids, more than a hash holds, with blocks free to move in the top row.
+   */
+  private static final String LARGE_BOARD = "5 5\n"
+      + "A A B . C\n"
+      + "A A D E F\n"
+      + "G H I J K\n"
+      + "L M N O P\n"
+      + "Q R S T .\n"
+      + "A\n"
+      + "3 3\n";
+
+  /**
+   * Every move from every reachable board of a board larger than a hash holds gives the hash of
+   * its grids, the first grids being dropped as {@link KlotskiBoard#hash()} drops them.
+   */
+  @Test
+  public void movesKeepTheHashOfLargeBoards() {
+    for (KlotskiBoard board : TestPuzzles.reachable(KlotskiBoard.parse(LARGE_BOARD))) {
+      assertEquals(board.toString(), rehash(board), board.hash());
+      for (String name : board.getBlocks().keySet()) {
+        for (Direction direction : Direction.values()) {
+          if (board.canMove(name, direction)) {
+            KlotskiBoard next = board.move(name, direction);
+            assertEquals(next.toString(), rehash(next), next.hash());
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Moving a block in the dropped grids and back gives the original hash.
+   */
+  @Test
+  public void moveAndBackRoundTrip() {
+    KlotskiBoard board = KlotskiBoard.parse(LARGE_BOARD);
+    KlotskiBoard moved = board.move("B", Direction.RIGHT);
+    assertEquals(rehash(moved), moved.hash());
+    assertEquals(board.hash(), moved.move("B", Direction.LEFT).hash());
+  }
+
+  /**
+   * Compute the hash of a board from its grids.
+   *
+   * @param board    Klotski board
+   * @return         Hash
+   */
+  private static long rehash(final KlotskiBoard board) {
+    KlotskiBoard copy = board.copy();
+    copy.setHash(0);
+    return copy.hash();
+  }
+
+}
@@ -0,0 +1,127 @@
+package org.shinthirty.klotski;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.shinthirty.klotski.models.KlotskiBoard;
+
+/**
+ * Use of {@link KlotskiSolver} as a library.
+ *
+ * @author shinthirty
+ */
+public class KlotskiSolverTest {
+
+  /**
+   * Number of times every puzzle is solved concurrently.
+   */
+  private static final int COPIES = 2;
+
+  /**
+   * Puzzles of different geometries parsed up front are solved concurrently, each with the
+   * steps it has when solved alone.
+   *
+   * @throws IOException             If a puzzle cannot be read
+   * @throws InterruptedException    If interrupted while waiting for the solutions
+   * @throws ExecutionException      If a solver fails
+   */
+  @Test
+  public void solvesPuzzlesOfDifferentGeometriesConcurrently()
+      throws IOException, InterruptedException, ExecutionException {
+    List<KlotskiBoard> puzzles = new ArrayList<>();
+    for (File puzzle : TestPuzzles.list()) {
+      puzzles.add(TestPuzzles.parse(puzzle));
+    }
+
+    List<Integer> expected = new ArrayList<>();
+    Solver solver = new KlotskiSolver();
+    for (KlotskiBoard puzzle : puzzles) {
+      expected.add(solver.solve(puzzle).getSteps());
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(puzzles.size() * COPIES);
+    try {
+      List<Future<Solution>> solutions = new ArrayList<>();
+      for (int copy = 0; copy < COPIES; copy++) {
+        for (KlotskiBoard puzzle : puzzles) {
+          solutions.add(executor.submit(() -> new KlotskiSolver().solve(puzzle)));
+        }
+      }
+
+      for (int i = 0; i < solutions.size(); i++) {
+        Solution solution = solutions.get(i).get();
+        assertTrue(solution.isSolved());
+        assertEquals((int) expected.get(i % puzzles.size()), solution.getSteps());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * A request cancelled before the search starts stops it without exploring any board.
+   *
+   * @throws IOException    If the puzzle cannot be read
+   */
+  @Test
+  public void cancelledRequestStopsSearchBeforeStart() throws IOException {
+    Cancellation cancellation = new Cancellation();
+    cancellation.cancel();
+
+    Solution solution = new KlotskiSolver().solve(TestPuzzles.parse("hard.txt"), 1,
+        TimeUnit.MINUTES, cancellation);
+    assertEquals(Solution.Status.CANCELLED, solution.getStatus());
+    assertEquals(0, solution.getExplored());
+  }
+
+  /**
+   * Cancelling a request shared by a search in progress on another thread stops it.
+   *
+   * @throws IOException             If the puzzle cannot be read
+   * @throws InterruptedException    If interrupted while waiting for the solution
+   * @throws ExecutionException      If the solver fails
+   */
+  @Test
+  public void cancelledRequestStopsSearchInProgress()
+      throws IOException, InterruptedException, ExecutionException {
+    KlotskiBoard puzzle = TestPuzzles.parse("hard.txt");
+    Cancellation cancellation = new Cancellation();
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Solution> solution = executor.submit(() -> new KlotskiSolver().solve(puzzle, 1,
+          TimeUnit.MINUTES, cancellation));
+      cancellation.cancel();
+      assertEquals(Solution.Status.CANCELLED, solution.get().getStatus());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * A cancel arriving once the search it was aimed at is over does not stop the next one.
+   *
+   * @throws IOException    If the puzzle cannot be read
+   */
+  @Test
+  public void lateCancelDoesNotStopNextSearch() throws IOException {
+    KlotskiBoard puzzle = TestPuzzles.parse("hackerrank.txt");
+    Solver solver = new KlotskiSolver();
+    assertTrue(solver.solve(puzzle).isSolved());
+
+    solver.cancel();
+    Solution solution = solver.solve(puzzle);
+    assertTrue(solution.isSolved());
+    assertTrue(solution.getExplored() > 0);
+  }
+
+}
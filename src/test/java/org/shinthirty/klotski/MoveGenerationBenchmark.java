@@ -0,0 +1,134 @@
+package org.shinthirty.klotski;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.shinthirty.klotski.models.Direction;
+import org.shinthirty.klotski.models.KlotskiBoard;
+import org.shinthirty.klotski.models.MoveGenerator;
+
+/**
+ * Compare scalar and packed move generation. Not run as part of the test suite:
+ *
+ * <pre>
+ * java -cp target/classes:target/test-classes:jcommander.jar \
+ *     org.shinthirty.klotski.MoveGenerationBenchmark testData/hard.txt testData/layton.txt
+ * </pre>
+ *
+ * @author shinthirty
+ */
+public class MoveGenerationBenchmark {
+
+  /**
+   * Number of boards sampled from each puzzle.
+   */
+  private static final int SAMPLE = 20000;
+
+  /**
+   * Number of measured rounds.
+   */
+  private static final int ROUNDS = 10;
+
+  /**
+   * Entry point.
+   *
+   * @param args    Puzzle files
+   * @throws IOException    if a puzzle cannot be read
+   */
+  public static void main(final String[] args) throws IOException {
+    for (String file : args) {
+      String configuration = new String(Files.readAllBytes(Paths.get(file)),
+          StandardCharsets.UTF_8);
+      KlotskiBoard puzzle = KlotskiBoard.parse(configuration);
+      List<KlotskiBoard> boards = sample(puzzle);
+      MoveGenerator generator = new MoveGenerator(puzzle);
+
+      long scalar = Long.MAX_VALUE;
+      long packed = Long.MAX_VALUE;
+      long checksum = 0;
+      for (int round = 0; round < ROUNDS; round++) {
+        long start = System.nanoTime();
+        for (KlotskiBoard board : boards) {
+          checksum += scalarMoves(board);
+        }
+        scalar = Math.min(scalar, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        for (KlotskiBoard board : boards) {
+          checksum -= Long.bitCount(generator.legalMoves(board));
+        }
+        packed = Math.min(packed, System.nanoTime() - start);
+      }
+
+      System.out.format("%s: %d blocks, %d boards, scalar %.1f ns/board, packed %.1f ns/board, "
+          + "%.2fx (checksum %d)%n", file, generator.size(), boards.size(),
+          (double) scalar / boards.size(), (double) packed / boards.size(),
+          (double) scalar / packed, checksum);
+
+      for (boolean usePacked : new boolean[] { false, true }) {
+        Solution solution = new KlotskiSolver(usePacked).solve(KlotskiBoard.parse(configuration));
+        System.out.format("  solve %s: %d explored, %d ms%n", usePacked ? "packed" : "scalar",
+            solution.getExplored(), solution.getElapsedMillis());
+      }
+    }
+  }
+
+  /**
+   * Count the legal moves one block and direction at a time.
+   *
+   * @param board    Klotski board
+   * @return         Number of legal moves
+   */
+  private static int scalarMoves(final KlotskiBoard board) {
+    int count = 0;
+    for (String name : board.getBlocks().keySet()) {
+      for (Direction direction : Direction.values()) {
+        if (board.canMove(name, direction)) {
+          count++;
+        }
+      }
+    }
+
+    return count;
+  }
+
+  /**
+   * Collect boards reachable from the puzzle by unit moves.
+   *
+   * @param puzzle    Initial board
+   * @return          Sampled boards
+   */
+  private static List<KlotskiBoard> sample(final KlotskiBoard puzzle) {
+    List<KlotskiBoard> boards = new ArrayList<>();
+    Set<Long> seen = new HashSet<>();
+    Deque<KlotskiBoard> queue = new ArrayDeque<>();
+    queue.add(puzzle);
+    seen.add(puzzle.hash());
+
+    while (!queue.isEmpty() && boards.size() < SAMPLE) {
+      KlotskiBoard board = queue.poll();
+      boards.add(board);
+      for (String name : board.getBlocks().keySet()) {
+        for (Direction direction : Direction.values()) {
+          if (board.canMove(name, direction)) {
+            KlotskiBoard next = board.move(name, direction);
+            next.setPrev(null);
+            if (seen.add(next.hash())) {
+              queue.add(next);
+            }
+          }
+        }
+      }
+    }
+
+    return boards;
+  }
+
+}
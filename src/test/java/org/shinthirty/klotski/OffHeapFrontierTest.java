@@ -0,0 +1,142 @@
+package org.shinthirty.klotski;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.shinthirty.klotski.models.KlotskiBoard;
+
+/**
+ * Round trips of the boards reachable from every puzzle in {@code testData} through the off-heap
+ * frontier and through {@link KlotskiBoard#decode(long)}.
+ *
+ * @author shinthirty
+ */
+public class OffHeapFrontierTest {
+
+  /**
+   * Number of times the reachable boards are queued, enough to fill several segments.
+   */
+  private static final int PASSES = 8;
+
+  /**
+   * Puzzles, sorted by file name.
+   */
+  private static File[] puzzles;
+
+  /**
+   * List the puzzles.
+   */
+  @BeforeClass
+  public static void load() {
+    puzzles = TestPuzzles.list();
+  }
+
+  /**
+   * Hashes come out of the frontier in the blocks they were added in, each block sorted, with the
+   * blocks in order, while segments are read, released and reused.
+   *
+   * @throws IOException    If a puzzle cannot be read
+   */
+  @Test
+  public void frontierRoundTrip() throws IOException {
+    OffHeapFrontier frontier = new OffHeapFrontier();
+    long[] batch = new long[OffHeapFrontier.BLOCK_SIZE];
+    for (File puzzle : puzzles) {
+      List<Long> hashes = new ArrayList<>();
+      TestPuzzles.reachable(TestPuzzles.parse(puzzle)).forEach(board -> hashes.add(board.hash()));
+
+      Deque<long[]> expected = new ArrayDeque<>();
+      long queued = 0;
+      for (int pass = 0; pass < PASSES; pass++) {
+        Collections.shuffle(hashes, new Random(pass));
+        for (int i = 0; i < hashes.size(); i += OffHeapFrontier.BLOCK_SIZE) {
+          List<Long> block = hashes.subList(i, Math.min(i + OffHeapFrontier.BLOCK_SIZE,
+              hashes.size()));
+          block.forEach(frontier::add);
+          expected.add(block.stream().mapToLong(Long::longValue).sorted().toArray());
+        }
+        frontier.flush();
+        queued += hashes.size();
+        assertEquals(puzzle.getName(), queued, frontier.size());
+
+        // Read half of the blocks while the next pass is written.
+        for (int i = expected.size() / 2; i > 0; i--) {
+          queued -= poll(frontier, batch, expected.poll(), puzzle);
+        }
+      }
+
+      while (!expected.isEmpty()) {
+        poll(frontier, batch, expected.poll(), puzzle);
+      }
+
+      assertEquals(puzzle.getName(), 0, frontier.poll(batch));
+      assertTrue(puzzle.getName(), frontier.isEmpty());
+      // The segment last written and at most 4 pooled segments are kept.
+      assertTrue(puzzle.getName(), frontier.capacity() <= 5L * OffHeapFrontier.SEGMENT_BYTES);
+      frontier.clear();
+    }
+  }
+
+  /**
+   * Every reachable board is rebuilt from its hash with the same blocks, up to the names of blocks
+   * of the same shape.
+   *
+   * @throws IOException    If a puzzle cannot be read
+   */
+  @Test
+  public void decodeRoundTrip() throws IOException {
+    for (File puzzle : puzzles) {
+      KlotskiBoard initial = TestPuzzles.parse(puzzle);
+      for (KlotskiBoard board : TestPuzzles.reachable(initial)) {
+        KlotskiBoard decoded = initial.decode(board.hash());
+        assertEquals(puzzle.getName(), board.hash(), decoded.hash());
+        assertEquals(puzzle.getName(), board.isSolved(), decoded.isSolved());
+        assertArrayEquals(puzzle.getName(), blocks(board), blocks(decoded));
+        String target = board.getGeometry().getTarget();
+        assertEquals(puzzle.getName(), board.getBlocks().get(target),
+            decoded.getBlocks().get(target));
+      }
+    }
+  }
+
+  /**
+   * Poll one block and compare it with the expected one.
+   *
+   * @param frontier    Frontier
+   * @param batch       Receives the block
+   * @param expected    Expected hashes, sorted
+   * @param puzzle      Puzzle file, for messages
+   * @return            Number of hashes polled
+   */
+  private static int poll(final OffHeapFrontier frontier, final long[] batch,
+      final long[] expected, final File puzzle) {
+    int count = frontier.poll(batch);
+    assertArrayEquals(puzzle.getName(), expected, Arrays.copyOf(batch, count));
+    return count;
+  }
+
+  /**
+   * Describe the blocks of a board regardless of their names.
+   *
+   * @param board    Board
+   * @return         Shape index and bitboard value of every block, sorted
+   */
+  private static long[] blocks(final KlotskiBoard board) {
+    return board.getBlocks().values().stream()
+        .mapToLong(block -> (long) block.getIndex() << 32 | block.getValue() & 0xFFFFFFFFL)
+        .sorted().toArray();
+  }
+
+}
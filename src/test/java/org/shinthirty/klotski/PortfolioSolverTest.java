@@ -0,0 +1,97 @@
+package org.shinthirty.klotski;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+import org.shinthirty.klotski.PortfolioSolver.Engine;
+import org.shinthirty.klotski.models.KlotskiBoard;
+
+/**
+ * Check the result and the engines of {@link PortfolioSolver} on the puzzles in {@code testData}.
+ *
+ * @author shinthirty
+ */
+public class PortfolioSolverTest {
+
+  /**
+   * Puzzle of more blocks than {@link IdaStarSolver} supports, solved in one step.
+   */
+  private static final String TOO_MANY_BLOCKS = "7 3\n"
+      + "A B C D E F G\n"
+      + "H I J K L M N\n"
+      + "O P Q R S T .\n"
+      + "T\n"
+      + "6 2\n";
+
+  /**
+   * Time to wait for an engine thread to end once the result is returned, in milliseconds.
+   */
+  private static final long JOIN_MILLIS = 1000;
+
+  /**
+   * The winning engine proves the number of steps of breadth-first search, and the losing
+   * engines are stopped by the time the result is returned.
+   *
+   * @throws IOException             If a puzzle cannot be read
+   * @throws InterruptedException    If interrupted while waiting for the engines
+   */
+  @Test
+  public void winnerProvesOptimalAndLosersStop() throws IOException, InterruptedException {
+    Solver bfs = new KlotskiSolver();
+    PortfolioSolver portfolio = new PortfolioSolver(Arrays.asList(Engine.values()));
+    for (File puzzle : TestPuzzles.list()) {
+      KlotskiBoard board = TestPuzzles.parse(puzzle);
+      Solution solution = portfolio.solve(board);
+
+      assertTrue(puzzle.getName() + " is not solved", solution.isSolved());
+      assertTrue(puzzle.getName() + " is not optimal", solution.isOptimal());
+      assertEquals(puzzle.getName(), bfs.solve(board).getSteps(), solution.getSteps());
+      assertTrue(puzzle.getName(), portfolio.getWinner() != null);
+      assertEnginesStopped(puzzle.getName());
+    }
+  }
+
+  /**
+   * An engine rejecting the puzzle leaves it to the others.
+   */
+  @Test
+  public void skipsUnsupportedEngine() {
+    PortfolioSolver portfolio = new PortfolioSolver(Arrays.asList(Engine.IDA, Engine.BFS));
+    Solution solution = portfolio.solve(KlotskiBoard.parse(TOO_MANY_BLOCKS));
+
+    assertTrue(solution.isSolved());
+    assertEquals(1, solution.getSteps());
+    assertEquals(Engine.BFS, portfolio.getWinner());
+  }
+
+  /**
+   * A puzzle every engine rejects is rejected by the portfolio.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsPuzzleNoEngineSupports() {
+    new PortfolioSolver(Collections.singletonList(Engine.IDA))
+        .solve(KlotskiBoard.parse(TOO_MANY_BLOCKS));
+  }
+
+  /**
+   * Check that no engine thread outlives the result by more than {@link #JOIN_MILLIS}.
+   *
+   * @param name    Puzzle name
+   * @throws InterruptedException    If interrupted while waiting for the engines
+   */
+  private static void assertEnginesStopped(final String name) throws InterruptedException {
+    for (Thread thread : Thread.getAllStackTraces().keySet()) {
+      if (PortfolioSolver.THREAD_NAME.equals(thread.getName())) {
+        thread.join(JOIN_MILLIS);
+        assertFalse(name + " left an engine running", thread.isAlive());
+      }
+    }
+  }
+
+}
@@ -0,0 +1,91 @@
+package org.shinthirty.klotski;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.beust.jcommander.JCommander;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Check the corpus written by {@link PuzzleGenerator} against breadth-first search.
+ *
+ * @author shinthirty
+ */
+public class PuzzleGeneratorTest {
+
+  /**
+   * Output directories.
+   */
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * Every puzzle has the optimal number of steps of its manifest line, hardest first, and the
+   * corpus does not depend on the number of threads.
+   *
+   * @throws IOException    If the corpus cannot be read
+   */
+  @Test
+  public void writesPuzzlesOfTheirOptimalSteps() throws IOException {
+    File corpus = generate("4");
+    List<String> manifest = Files.readAllLines(new File(corpus, "manifest.txt").toPath(),
+        StandardCharsets.UTF_8);
+    assertEquals(5, manifest.size());
+
+    Solver bfs = new KlotskiSolver();
+    int previous = Integer.MAX_VALUE;
+    for (String line : manifest) {
+      String[] fields = line.split(" ");
+      int steps = Integer.parseInt(fields[1]);
+      Solution solution = bfs.solve(TestPuzzles.parse(new File(corpus, fields[0])));
+
+      assertTrue(fields[0] + " is not solved", solution.isSolved());
+      assertEquals(fields[0], steps, solution.getSteps());
+      assertEquals(fields[0], PuzzleGenerator.difficulty(steps), fields[2]);
+      assertFalse(fields[0], steps > previous);
+      previous = steps;
+    }
+
+    File single = generate("1");
+    for (String file : corpus.list()) {
+      assertEquals(file, read(new File(corpus, file)), read(new File(single, file)));
+    }
+  }
+
+  /**
+   * Generate the hardest positions of the classic pieces on a 4x5 board.
+   *
+   * @param threads    Number of search threads
+   * @return           Output directory
+   * @throws IOException    If the output directory cannot be created
+   */
+  private File generate(final String threads) throws IOException {
+    File output = folder.newFolder();
+    PuzzleGenerator generator = new PuzzleGenerator();
+    JCommander.newBuilder().addObject(generator).build().parse("-W", "4", "-H", "5",
+        "-b", "2x2,1x2*4,2x1,1x1*4", "-x", "1", "-y", "3", "-s", "42", "-n", "5",
+        "-t", threads, "-o", output.getPath());
+    generator.run();
+    return output;
+  }
+
+  /**
+   * Read a file of the corpus.
+   *
+   * @param file    File
+   * @return        Content
+   * @throws IOException    If the file cannot be read
+   */
+  private static String read(final File file) throws IOException {
+    return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+  }
+
+}
@@ -0,0 +1,155 @@
+package org.shinthirty.klotski;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Properties;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.shinthirty.klotski.models.KlotskiBoard;
+
+/**
+ * Solve every puzzle in {@code testData} and check the solutions, the bytes allocated per
+ * explored board and the explored boards per second against {@code budgets.properties}.
+ *
+ * @author shinthirty
+ */
+public class SolverBudgetTest {
+
+  /**
+   * Number of unmeasured rounds letting the JIT compile the solver.
+   */
+  private static final int WARMUP_ROUNDS = 2;
+
+  /**
+   * Budgets.
+   */
+  private static Properties budgets;
+
+  /**
+   * Puzzles, sorted by file name.
+   */
+  private static File[] puzzles;
+
+  /**
+   * Load the budgets and list the puzzles.
+   *
+   * @throws IOException    If the budgets cannot be read
+   */
+  @BeforeClass
+  public static void load() throws IOException {
+    budgets = new Properties();
+    try (InputStream in = SolverBudgetTest.class.getResourceAsStream("/budgets.properties")) {
+      assertNotNull("budgets.properties is missing", in);
+      budgets.load(in);
+    }
+
+    puzzles = TestPuzzles.list();
+  }
+
+  /**
+   * Every puzzle is solved with its optimal number of steps.
+   *
+   * @throws IOException    If a puzzle cannot be read
+   */
+  @Test
+  public void solvesEveryPuzzleOptimally() throws IOException {
+    Solver solver = new KlotskiSolver();
+    for (File puzzle : puzzles) {
+      String steps = budgets.getProperty(puzzle.getName() + ".steps");
+      assertNotNull("No step count for " + puzzle.getName(), steps);
+
+      Solution solution = solver.solve(TestPuzzles.parse(puzzle));
+      assertTrue(puzzle.getName() + " is not solved", solution.isSolved());
+      assertTrue(puzzle.getName() + " is not optimal", solution.isOptimal());
+      assertEquals(puzzle.getName(), Integer.parseInt(steps), solution.getSteps());
+    }
+  }
+
+  /**
+   * Solving every puzzle with the packed move generator stays within its allocation and
+   * throughput budgets.
+   *
+   * @throws IOException    If a puzzle cannot be read
+   */
+  @Test
+  public void packedStaysWithinBudgets() throws IOException {
+    checkBudgets(new KlotskiSolver(true), "packed");
+  }
+
+  /**
+   * Solving every puzzle with the scalar move checks, the command line default, stays within its
+   * allocation and throughput budgets. This path allocates a board per unit move with
+   * {@link KlotskiBoard#move} and hashes it from its grids.
+   *
+   * @throws IOException    If a puzzle cannot be read
+   */
+  @Test
+  public void scalarStaysWithinBudgets() throws IOException {
+    checkBudgets(new KlotskiSolver(false), "scalar");
+  }
+
+  /**
+   * Measure the bytes allocated per explored board and the explored boards per second of a
+   * solver over every puzzle, after warming it up, and check them against their budgets.
+   *
+   * @param solver    Solver
+   * @param prefix    Prefix of the budget names
+   * @throws IOException    If a puzzle cannot be read
+   */
+  private static void checkBudgets(final Solver solver, final String prefix) throws IOException {
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+    assumeTrue(threads.isThreadAllocatedMemorySupported());
+    threads.setThreadAllocatedMemoryEnabled(true);
+
+    for (int round = 0; round < WARMUP_ROUNDS; round++) {
+      for (File puzzle : puzzles) {
+        solve(solver, TestPuzzles.parse(puzzle));
+      }
+    }
+
+    long threadId = Thread.currentThread().getId();
+    long explored = 0;
+    long nanos = 0;
+    long allocated = 0;
+    for (File puzzle : puzzles) {
+      KlotskiBoard board = TestPuzzles.parse(puzzle);
+      long bytesBefore = threads.getThreadAllocatedBytes(threadId);
+      long start = System.nanoTime();
+      explored += solve(solver, board).getExplored();
+      nanos += System.nanoTime() - start;
+      allocated += threads.getThreadAllocatedBytes(threadId) - bytesBefore;
+    }
+
+    long bytesPerState = allocated / explored;
+    long statesPerSecond = explored * 1_000_000_000L / Math.max(nanos, 1);
+    long maxBytes = Long.parseLong(budgets.getProperty(prefix + ".bytesPerState"));
+    long minStates = Long.parseLong(budgets.getProperty(prefix + ".statesPerSecond"));
+    assertTrue(prefix + ": " + bytesPerState + " bytes per state exceed the budget of " + maxBytes
+        + " (" + statesPerSecond + " states per second)", bytesPerState <= maxBytes);
+    assertTrue(prefix + ": " + statesPerSecond + " states per second fall short of the budget of "
+        + minStates + " (" + bytesPerState + " bytes per state)", statesPerSecond >= minStates);
+  }
+
+  /**
+   * Solve a puzzle, checking it is solved.
+   *
+   * @param solver    Solver
+   * @param board     Parsed puzzle
+   * @return          {@link Solution}
+   */
+  private static Solution solve(final Solver solver, final KlotskiBoard board) {
+    Solution solution = solver.solve(board);
+    assertTrue(solution.isSolved());
+    return solution;
+  }
+
+}
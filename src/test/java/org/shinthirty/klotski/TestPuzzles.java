@@ -0,0 +1,91 @@
+package org.shinthirty.klotski;
+
+import static org.junit.Assert.assertNotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.shinthirty.klotski.models.KlotskiBoard;
+
+/**
+ * Puzzles of {@code testData} shared by the tests.
+ *
+ * @author shinthirty
+ */
+final class TestPuzzles {
+
+  /**
+   * Directory of the puzzles, relative to the project.
+   */
+  private static final File TEST_DATA = new File("testData");
+
+  /**
+   * Utility class.
+   */
+  private TestPuzzles() {
+  }
+
+  /**
+   * List the puzzles.
+   *
+   * @return    Puzzle files, sorted by file name
+   */
+  static File[] list() {
+    File[] puzzles = TEST_DATA.listFiles((dir, name) -> name.endsWith(".txt"));
+    assertNotNull("testData is missing", puzzles);
+    Arrays.sort(puzzles);
+    return puzzles;
+  }
+
+  /**
+   * Parse a puzzle file.
+   *
+   * @param puzzle    Puzzle file
+   * @return          {@link KlotskiBoard}
+   * @throws IOException    If the file cannot be read
+   */
+  static KlotskiBoard parse(final File puzzle) throws IOException {
+    return KlotskiBoard.parse(new String(Files.readAllBytes(puzzle.toPath()),
+        StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Parse a puzzle of {@code testData}.
+   *
+   * @param name    File name of the puzzle
+   * @return        {@link KlotskiBoard}
+   * @throws IOException    If the file cannot be read
+   */
+  static KlotskiBoard parse(final String name) throws IOException {
+    return parse(new File(TEST_DATA, name));
+  }
+
+  /**
+   * Find every board reachable from a puzzle.
+   *
+   * @param puzzle    Parsed klotski puzzle
+   * @return          Reachable boards, the puzzle first
+   */
+  static List<KlotskiBoard> reachable(final KlotskiBoard puzzle) {
+    Expander expander = Expander.of(puzzle, true, null);
+    Set<Long> visited = new HashSet<>();
+    visited.add(puzzle.hash());
+    List<KlotskiBoard> boards = new ArrayList<>();
+    boards.add(puzzle);
+    for (int i = 0; i < boards.size(); i++) {
+      for (KlotskiBoard next : expander.nextBoards(boards.get(i), visited::add)) {
+        next.setPrev(null);
+        boards.add(next);
+      }
+    }
+
+    return boards;
+  }
+
+}